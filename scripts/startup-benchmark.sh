@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Measures time-to-first-successful-request and resident memory for each startup mode.
+#
+# Usage: scripts/startup-benchmark.sh [jvm|cds|aot|native ...]
+#   Build first:  jvm/cds -> ./mvnw -Pcds package   aot -> ./mvnw -Paot package   native -> ./mvnw -Pnative native:compile
+#   Requires a reachable Redis (the probe URL reports DOWN without it).
+#
+# Environment:
+#   PROBE_URL   URL polled until it returns 2xx (default: http://localhost:8080/actuator/health)
+#   RUNS        Runs per mode, results are averaged (default: 5)
+
+set -euo pipefail
+
+PROBE_URL=${PROBE_URL:-http://localhost:8080/actuator/health}
+RUNS=${RUNS:-5}
+TARGET=$(cd "$(dirname "$0")/../target" && pwd)
+JAR=$(ls "$TARGET"/backend-*.jar | grep -v original | head -n 1)
+CDS_JAR="$TARGET/cds/$(basename "$JAR")"
+NATIVE_BIN="$TARGET/backend"
+
+command_for() {
+  case "$1" in
+    jvm)    echo "java -jar $JAR" ;;
+    cds)    echo "java -XX:SharedArchiveFile=$TARGET/cds/application.jsa -jar $CDS_JAR" ;;
+    aot)    echo "java -Dspring.aot.enabled=true -jar $JAR" ;;
+    native) echo "$NATIVE_BIN" ;;
+    *)      echo "Unknown mode: $1" >&2; exit 1 ;;
+  esac
+}
+
+measure() {
+  local cmd=$1
+  local start end pid rss
+  start=$(date +%s%N)
+  $cmd >/dev/null 2>&1 &
+  pid=$!
+  until curl -fs -o /dev/null "$PROBE_URL"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "process exited before becoming ready" >&2
+      exit 1
+    fi
+    sleep 0.02
+  done
+  end=$(date +%s%N)
+  rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$(( (end - start) / 1000000 )) $rss"
+}
+
+MODES=("$@")
+if [ ${#MODES[@]} -eq 0 ]; then
+  MODES=(jvm cds aot native)
+fi
+
+printf "%-8s %12s %10s\n" mode first-req-ms rss-mb
+for mode in "${MODES[@]}"; do
+  cmd=$(command_for "$mode")
+  total_ms=0
+  total_kb=0
+  for _ in $(seq "$RUNS"); do
+    read -r ms kb < <(measure "$cmd")
+    total_ms=$((total_ms + ms))
+    total_kb=$((total_kb + kb))
+  done
+  printf "%-8s %12d %10d\n" "$mode" $((total_ms / RUNS)) $((total_kb / RUNS / 1024))
+done
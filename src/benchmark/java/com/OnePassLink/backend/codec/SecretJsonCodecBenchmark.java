@@ -0,0 +1,86 @@
+package com.OnePassLink.backend.codec;
+
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretRequest;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SecretJsonCodec} against Jackson (configured as in application.yml) on the stored record
+ * and the create request, the two shapes on the hot path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecretJsonCodecBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    private int ciphertextBytes;
+
+    private final SecretJsonCodec codec = new SecretJsonCodec();
+    private final ObjectMapper jackson = Jackson2ObjectMapperBuilder.json()
+        .serializationInclusion(JsonInclude.Include.NON_NULL)
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    private Secret secret;
+    private byte[] secretJson;
+    private byte[] requestJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] raw = new byte[ciphertextBytes * 3 / 4];
+        new Random(42).nextBytes(raw);
+        String ciphertext = Base64.getEncoder().encodeToString(raw);
+        Instant now = Instant.parse("2025-01-02T03:04:05.123Z");
+        secret = new Secret("Xk3fP9qLm2Rt7vWz", ciphertext, now, now.plusSeconds(3600), 1, 0);
+        secretJson = codec.writeSecret(secret);
+        requestJson = jackson.writeValueAsBytes(new SecretRequest(ciphertext, 3600));
+    }
+
+    @Benchmark
+    public byte[] writeSecretCodec() {
+        return codec.writeSecret(secret);
+    }
+
+    @Benchmark
+    public byte[] writeSecretJackson() throws IOException {
+        return jackson.writeValueAsBytes(secret);
+    }
+
+    @Benchmark
+    public Secret readSecretCodec() {
+        return codec.readSecret(secretJson);
+    }
+
+    @Benchmark
+    public Secret readSecretJackson() throws IOException {
+        return jackson.readValue(secretJson, Secret.class);
+    }
+
+    @Benchmark
+    public SecretRequest readRequestCodec() {
+        return codec.readSecretRequest(requestJson);
+    }
+
+    @Benchmark
+    public SecretRequest readRequestJackson() throws IOException {
+        return jackson.readValue(requestJson, SecretRequest.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.OnePassLink.backend.config;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An API request through the previous single {@code securityFilterChain} ({@link LegacySecurityConfig})
+ * and through the current lean API chain. {@code passThrough} is the cost of building the mock
+ * request and response, which both chain runs include; run with {@code -prof gc} for allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecurityFilterChainBenchmark {
+
+    private static final FilterChain TERMINAL = (request, response) -> { };
+    private static final Filter PASS_THROUGH = (request, response, chain) -> chain.doFilter(request, response);
+
+    private AnnotationConfigWebApplicationContext legacyContext;
+    private AnnotationConfigWebApplicationContext currentContext;
+    private Filter legacy;
+    private Filter current;
+
+    @Setup
+    public void startContexts() {
+        legacyContext = LegacySecurityConfig.start(LegacySecurityConfig.class);
+        currentContext = LegacySecurityConfig.start(SecurityHeadersConfig.class);
+        legacy = legacyContext.getBean("springSecurityFilterChain", Filter.class);
+        current = currentContext.getBean("springSecurityFilterChain", Filter.class);
+    }
+
+    @TearDown
+    public void closeContexts() {
+        legacyContext.close();
+        currentContext.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse passThrough() throws Exception {
+        return run(PASS_THROUGH);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse legacyChain() throws Exception {
+        return run(legacy);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse apiChain() throws Exception {
+        return run(current);
+    }
+
+    private static MockHttpServletResponse run(Filter chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/secrets/abc");
+        request.setServletPath("/api/secrets/abc"); // as mapped by the dispatcher servlet on "/"
+        request.setSecure(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(request, response, TERMINAL);
+        return response;
+    }
+}
@@ -0,0 +1,122 @@
+package com.OnePassLink.backend.repository;
+
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.OnePassLink.backend.util.IdGenerator;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Redis memory per million secrets with and without compact storage. Writes {@code count} secrets
+ * through {@link SecretRepository} into an emptied database for each layout and reports the growth
+ * of {@code used_memory}. Flushes the database it is pointed at, and sets
+ * {@code hash-max-listpack-value} to 512 for the run, as {@code docker-compose.yml} does.
+ *
+ * <pre>
+ * mvn -Pbenchmark -DskipTests test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *   -Dexec.args="-classpath %classpath com.OnePassLink.backend.repository.CompactStorageFootprint redis://localhost:6379/15 1000000 256"
+ * </pre>
+ */
+public final class CompactStorageFootprint {
+
+    private static final int THREADS = 8;
+    private static final int MAX_RECORD_BYTES = 512;
+
+    private CompactStorageFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI url = URI.create(args.length > 0 ? args[0] : "redis://localhost:6379/15");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int ciphertextLength = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int database = url.getPath() == null || url.getPath().length() <= 1 ? 15 : Integer.parseInt(url.getPath().substring(1));
+
+        LettuceConnectionFactory factory = RealRedis.connectionFactory(url.getHost(), url.getPort(), database,
+            Duration.ofSeconds(10));
+        try {
+            RedisTemplate<String, String> template = new RedisConfig().redisTemplate(factory);
+            String listpackValue = template.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().getConfig("hash-max-ziplist-value")).getProperty("hash-max-ziplist-value");
+            setListpackValue(template, String.valueOf(MAX_RECORD_BYTES));
+            try {
+                System.out.printf("Redis %s, %d secrets, %d-char ciphertext%n",
+                    info(template).getProperty("redis_version"), count, ciphertextLength);
+                long plain = measure(template, false, count, ciphertextLength);
+                long compact = measure(template, true, count, ciphertextLength);
+                System.out.printf("key per secret: %,d bytes per million (%d per secret)%n",
+                    plain * 1_000_000L / count, plain / count);
+                System.out.printf("compact:        %,d bytes per million (%d per secret)%n",
+                    compact * 1_000_000L / count, compact / count);
+            } finally {
+                setListpackValue(template, listpackValue);
+            }
+            RealRedis.flush(template);
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private static long measure(RedisTemplate<String, String> template, boolean compact, int count,
+                                int ciphertextLength) throws Exception {
+        RealRedis.flush(template);
+        CompactSecretStore store = new CompactSecretStore(template, compact, MAX_RECORD_BYTES, 16, "sweeper", 256);
+        SecretRepository repository = new SecretRepository(template, JsonMapper.builder().findAndAddModules().build(),
+            new SecretJsonCodec(), store, new LocalSecretCache(new SimpleMeterRegistry(), false, 0, 0, 0),
+            new DeadlineGuard(50, new SimpleMeterRegistry()));
+        IdGenerator ids = new IdGenerator(false, "");
+        String ciphertext = "c".repeat(ciphertextLength);
+        long before = usedMemory(template);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int share = count / THREADS + (t < count % THREADS ? 1 : 0);
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        Instant now = Instant.now();
+                        repository.save(new Secret(ids.generateId(), ciphertext, now, now.plusSeconds(3600), 1, 0));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return usedMemory(template) - before;
+    }
+
+    private static void setListpackValue(RedisTemplate<String, String> template, String value) {
+        template.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().setConfig("hash-max-ziplist-value", value);
+            return null;
+        });
+    }
+
+    private static long usedMemory(RedisTemplate<String, String> template) {
+        return Long.parseLong(template.execute((RedisCallback<Properties>) connection ->
+            connection.serverCommands().info("memory")).getProperty("used_memory"));
+    }
+
+    private static Properties info(RedisTemplate<String, String> template) {
+        return template.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("server"));
+    }
+}
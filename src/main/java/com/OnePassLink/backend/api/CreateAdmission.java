@@ -0,0 +1,75 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.ProofOfWork;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission shared by the endpoints that create secrets. Callers presenting an API key are
+ * identified for per-key quotas and skip proof-of-work; everybody else solves a challenge while
+ * challenge mode requires one. Charging the quota is left to the caller, which knows when the
+ * secret's storage starts.
+ */
+@Component
+class CreateAdmission {
+
+    /**
+     * Either a rejection status (with a Retry-After for 503) or the admitted caller's key name
+     * (null when anonymous)
+     */
+    record Outcome(HttpStatus rejection, String keyName, long retryAfterSeconds) {
+
+        static final Outcome ANONYMOUS = new Outcome(null, null, 0);
+
+        static Outcome rejectedWith(HttpStatus status) {
+            return new Outcome(status, null, 0);
+        }
+
+        boolean rejected() {
+            return rejection != null;
+        }
+
+        <T> ResponseEntity<T> response() {
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(rejection);
+            if (retryAfterSeconds > 0) {
+                response.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            }
+            return response.build();
+        }
+    }
+
+    private final ProofOfWork proofOfWork;
+    private final ApiKeyQuotas apiKeyQuotas;
+
+    CreateAdmission(ProofOfWork proofOfWork, ApiKeyQuotas apiKeyQuotas) {
+        this.proofOfWork = proofOfWork;
+        this.apiKeyQuotas = apiKeyQuotas;
+    }
+
+    Outcome admit(String apiKey, String powChallenge, String powSolution) {
+        if (apiKeyQuotas.isEnabled() && apiKey != null) {
+            String keyName = apiKeyQuotas.identify(apiKey);
+            return keyName != null ? new Outcome(null, keyName, 0) : Outcome.rejectedWith(HttpStatus.UNAUTHORIZED);
+        }
+        if (proofOfWork.isEnabled()) {
+            proofOfWork.recordCreate();
+            if (proofOfWork.isRequired()) {
+                ProofOfWork.Verdict verdict = proofOfWork.verify(powChallenge, powSolution);
+                if (verdict == ProofOfWork.Verdict.MISSING) {
+                    return Outcome.rejectedWith(HttpStatus.PRECONDITION_REQUIRED);
+                }
+                if (verdict == ProofOfWork.Verdict.BUSY) {
+                    // A good solution this instance cannot take right now: not the client's fault
+                    return new Outcome(HttpStatus.SERVICE_UNAVAILABLE, null, proofOfWork.getRetryAfterSeconds());
+                }
+                if (verdict != ProofOfWork.Verdict.OK) {
+                    return Outcome.rejectedWith(HttpStatus.FORBIDDEN);
+                }
+            }
+        }
+        return Outcome.ANONYMOUS;
+    }
+}
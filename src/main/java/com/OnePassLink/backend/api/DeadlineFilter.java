@@ -0,0 +1,75 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.util.RequestDeadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the clock for each secrets API request. The budget comes from the request timeout header
+ * when the client or edge proxy sends one (capped at {@code max-ms}), otherwise from the endpoint's
+ * default. Runs ahead of load shedding so time spent queued counts against the budget.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Value("${app.deadline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.deadline.header:X-Request-Timeout-Ms}")
+    private String header;
+
+    @Value("${app.deadline.max-ms:10000}")
+    private long maxMs;
+
+    @Value("${app.deadline.default.create-ms:3000}")
+    private long createMs;
+
+    @Value("${app.deadline.default.consume-ms:3000}")
+    private long consumeMs;
+
+    @Value("${app.deadline.default.check-ms:1000}")
+    private long checkMs;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs(request)));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    long budgetMs(HttpServletRequest request) {
+        String requested = request.getHeader(header);
+        if (requested != null) {
+            try {
+                return Math.min(Math.max(Long.parseLong(requested.trim()), 0), maxMs);
+            } catch (NumberFormatException e) {
+                // Fall through to the endpoint default
+            }
+        }
+        return switch (LoadSheddingFilter.classify(request)) {
+            case CREATE -> createMs;
+            case CHECK -> checkMs;
+            default -> consumeMs;
+        };
+    }
+}
@@ -0,0 +1,315 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.model.ErrorResponse;
+import com.OnePassLink.backend.model.FileUpload;
+import com.OnePassLink.backend.model.FileUploadRequest;
+import com.OnePassLink.backend.model.SecretResponse;
+import com.OnePassLink.backend.repository.FileSecretStore.Completion;
+import com.OnePassLink.backend.repository.FileSecretStore.Manifest;
+import com.OnePassLink.backend.repository.FileSecretStore.Session;
+import com.OnePassLink.backend.service.FileSecretService;
+import com.OnePassLink.backend.service.FileSecretService.ChunkResult;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.DeadlineExceededException;
+import com.OnePassLink.backend.util.RequestDeadline;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * File secrets: encrypted files too large for a single JSON secret, uploaded in chunks and
+ * streamed back once. Returns 404 on every endpoint while the feature is disabled.
+ */
+@RestController
+@RequestMapping("/api/files")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@Tag(name = "Files", description = "One-time encrypted file sharing with chunked, resumable upload")
+public class FileSecretController {
+
+    private final FileSecretService fileSecretService;
+    private final ApiKeyQuotas apiKeyQuotas;
+    private final CreateAdmission createAdmission;
+
+    public FileSecretController(FileSecretService fileSecretService, ApiKeyQuotas apiKeyQuotas,
+                                CreateAdmission createAdmission) {
+        this.fileSecretService = fileSecretService;
+        this.apiKeyQuotas = apiKeyQuotas;
+        this.createAdmission = createAdmission;
+    }
+
+    @Operation(
+        summary = "Start a file upload",
+        description = "Opens an upload session for a client-side encrypted file of the declared size. " +
+                     "The response gives the chunk size and count; upload each chunk with PUT, then complete " +
+                     "the upload. Proof-of-work applies as for POST /api/secrets; an upload with an API key is " +
+                     "refused at once if the file cannot fit the key's quotas, and charged to them when it is completed.",
+        tags = {"Files"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Upload session opened",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = FileUpload.class))
+        ),
+        @ApiResponse(responseCode = "401", description = "API key quotas are enabled and the X-API-Key header carries an unknown key"),
+        @ApiResponse(responseCode = "403", description = "Proof-of-work solution invalid, expired, too weak or already used"),
+        @ApiResponse(responseCode = "404", description = "File secrets are disabled"),
+        @ApiResponse(responseCode = "413", description = "Declared size exceeds the maximum file size"),
+        @ApiResponse(responseCode = "428", description = "Challenge mode is active and no proof-of-work solution was sent"),
+        @ApiResponse(responseCode = "429", description = "The file does not fit the API key's stored-bytes or live-secret quota"),
+        @ApiResponse(responseCode = "503", description = "Proof-of-work replay cache is full; retry after Retry-After seconds")
+    })
+    @PostMapping("/uploads")
+    public ResponseEntity<FileUpload> startUpload(
+        @Valid @RequestBody FileUploadRequest request,
+        @Parameter(description = "Challenge token from GET /api/secrets/challenge (required while challenge mode is active)")
+        @RequestHeader(value = "X-PoW-Challenge", required = false) String powChallenge,
+        @Parameter(description = "Proof-of-work solution for the challenge")
+        @RequestHeader(value = "X-PoW-Solution", required = false) String powSolution,
+        @Parameter(description = "API key; identified callers are held to per-key quotas instead of proof-of-work")
+        @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        if (!fileSecretService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.getSizeBytes() > fileSecretService.getMaxSizeBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        CreateAdmission.Outcome admission = createAdmission.admit(apiKey, powChallenge, powSolution);
+        if (admission.rejected()) {
+            return admission.response();
+        }
+        // A keyed upload is charged to the key's quota when it is completed, not before; only refuse
+        // now what could not fit, so the client does not send chunks for nothing
+        if (admission.keyName() != null
+                && apiKeyQuotas.check(admission.keyName(), request.getSizeBytes()) != ApiKeyQuotas.Verdict.OK) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(fileSecretService.startUpload(request, admission.keyName()));
+    }
+
+    @Operation(
+        summary = "Get upload progress",
+        description = "Lists the chunks stored so far. To resume an interrupted upload, send the chunks not listed.",
+        tags = {"Files"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Upload in progress",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = FileUpload.class))
+        ),
+        @ApiResponse(responseCode = "404", description = "Upload not found, expired or already completed")
+    })
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<FileUpload> getUpload(@PathVariable String id) {
+        if (!fileSecretService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return fileSecretService.getUpload(id)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+        summary = "Upload one chunk",
+        description = "Stores chunk `index` (from 0). Every chunk but the last must be exactly `chunkSizeBytes` long, " +
+                     "and the last one holds the rest. Sending a chunk again replaces it.",
+        tags = {"Files"}
+    )
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+        description = "Encrypted chunk bytes",
+        required = true,
+        content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            schema = @Schema(type = "string", format = "binary"))
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Chunk stored"),
+        @ApiResponse(responseCode = "400", description = "Index out of range or chunk has the wrong size"),
+        @ApiResponse(responseCode = "404", description = "Upload not found, expired or already completed")
+    })
+    @PutMapping(value = "/uploads/{id}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> uploadChunk(@PathVariable String id, @PathVariable int index,
+                                            HttpServletRequest httpRequest) throws IOException {
+        if (!fileSecretService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        ChunkResult result = fileSecretService.storeChunk(id, index, new ClientPacedBody(httpRequest.getInputStream()));
+        return switch (result) {
+            case STORED -> ResponseEntity.noContent().build();
+            case NO_UPLOAD -> ResponseEntity.notFound().build();
+            case BAD_INDEX, BAD_SIZE -> ResponseEntity.badRequest().build();
+        };
+    }
+
+    @Operation(
+        summary = "Complete an upload",
+        description = "Checks that every chunk is present and turns the upload into a one-time file secret. " +
+                     "The returned ID is the upload ID; the secret's TTL starts now.",
+        tags = {"Files"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "File secret created",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = SecretResponse.class))
+        ),
+        @ApiResponse(responseCode = "404", description = "Upload not found, expired or already completed"),
+        @ApiResponse(responseCode = "409", description = "Chunks are missing or do not add up to the declared size"),
+        @ApiResponse(responseCode = "429", description = "Per-key quota exceeded; the upload stays open until it expires")
+    })
+    @PostMapping("/uploads/{id}/complete")
+    public ResponseEntity<SecretResponse> completeUpload(@PathVariable String id) {
+        if (!fileSecretService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<Session> found = fileSecretService.findSession(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Session session = found.get();
+        Instant expiresAt = Instant.now().plusSeconds(session.expiresInSec());
+        String keyName = apiKeyQuotas.isEnabled() ? session.quotaKey() : null;
+        if (keyName != null && apiKeyQuotas.tryAcquire(keyName, session.sizeBytes(), expiresAt) != ApiKeyQuotas.Verdict.OK) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        Completion completion;
+        try {
+            completion = fileSecretService.completeUpload(id, session, expiresAt);
+        } catch (RuntimeException e) {
+            releaseQuota(keyName, session.sizeBytes(), expiresAt);
+            throw e;
+        }
+        if (completion != Completion.OK) {
+            releaseQuota(keyName, session.sizeBytes(), expiresAt);
+        }
+        return switch (completion) {
+            case OK -> ResponseEntity.status(HttpStatus.CREATED).body(new SecretResponse(id));
+            case NO_UPLOAD -> ResponseEntity.notFound().build();
+            case MISSING_CHUNKS, SIZE_MISMATCH -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+        };
+    }
+
+    @Operation(
+        summary = "Download and delete a file secret (one-time access)",
+        description = "Streams the encrypted file and deletes it. Only the first request gets the file; " +
+                     "it is gone for everybody else as soon as the download starts.",
+        tags = {"Files"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Encrypted file (and deleted)",
+            content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                schema = @Schema(type = "string", format = "binary"))
+        ),
+        @ApiResponse(responseCode = "404", description = "File secrets are disabled"),
+        @ApiResponse(responseCode = "410", description = "File not found, expired, or already consumed")
+    })
+    @GetMapping("/{id}")
+    public void downloadFile(@PathVariable String id, HttpServletResponse response) throws IOException {
+        if (!fileSecretService.isEnabled()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        Optional<Manifest> claimed = fileSecretService.claimFile(id);
+        if (claimed.isEmpty()) {
+            response.setStatus(HttpStatus.GONE.value());
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(claimed.get().sizeBytes());
+        response.setHeader("Cache-Control", "no-store");
+        // The secret is already consumed; the request deadline covered the claim, and cutting the
+        // transfer short now would only lose the file
+        RequestDeadline.clear();
+        fileSecretService.stream(id, claimed.get(), response.getOutputStream());
+    }
+
+    @Operation(
+        summary = "Check if a file secret exists",
+        description = "Verifies that a file secret can still be downloaded, without consuming it.",
+        tags = {"Files"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "File exists and is available for download"),
+        @ApiResponse(responseCode = "410", description = "File not found, expired, or already consumed")
+    })
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> checkFile(@PathVariable String id) {
+        if (!fileSecretService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return fileSecretService.fileExists(id)
+            ? ResponseEntity.ok().build()
+            : ResponseEntity.status(HttpStatus.GONE).build();
+    }
+
+    /**
+     * A request body whose read time does not count against the request deadline. A chunk arrives
+     * at the client's pace, and the create budget is meant for the Redis work around it; without
+     * this a client slower than about chunk size / budget could never store a chunk.
+     */
+    static final class ClientPacedBody extends FilterInputStream {
+
+        ClientPacedBody(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long started = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                RequestDeadline.extend(System.nanoTime() - started);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long started = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                RequestDeadline.extend(System.nanoTime() - started);
+            }
+        }
+    }
+
+    private void releaseQuota(String keyName, long bytes, Instant expiresAt) {
+        if (keyName != null) {
+            apiKeyQuotas.release(keyName, bytes, expiresAt);
+        }
+    }
+
+    /**
+     * Work skipped because the caller's deadline passed; nobody is waiting for a detailed answer
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponse> handleDeadlineExceeded(DeadlineExceededException e) {
+        ErrorResponse error = new ErrorResponse(
+            "DEADLINE_EXCEEDED",
+            "Request deadline exceeded",
+            HttpStatus.GATEWAY_TIMEOUT.value()
+        );
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(error);
+    }
+}
@@ -0,0 +1,113 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.util.OverloadController;
+import com.OnePassLink.backend.util.OverloadController.RequestClass;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Classifies requests by priority and admits them through the {@link OverloadController}.
+ * Runs ahead of the security chain so shed requests cost as little as possible.
+ * Actuator endpoints bypass admission so health probes keep working under overload.
+ * Request latency, admission wait included, is recorded per class and outcome.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private static final String SECRETS_PATH = "/api/secrets";
+    private static final String FILES_PATH = "/api/files";
+
+    private final OverloadController overloadController;
+    private final MeterRegistry meterRegistry;
+    private final Map<RequestClass, Timer> served = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Timer> shed = new EnumMap<>(RequestClass.class);
+
+    public LoadSheddingFilter(OverloadController overloadController, MeterRegistry meterRegistry) {
+        this.overloadController = overloadController;
+        this.meterRegistry = meterRegistry;
+        for (RequestClass requestClass : RequestClass.values()) {
+            served.put(requestClass, latencyTimer(meterRegistry, requestClass, "served"));
+            shed.put(requestClass, latencyTimer(meterRegistry, requestClass, "shed"));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !overloadController.isEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestClass requestClass = classify(request);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean admitted;
+        try {
+            admitted = overloadController.acquire(requestClass);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            sample.stop(shed.get(requestClass));
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            overloadController.release();
+            sample.stop(served.get(requestClass));
+        }
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, RequestClass requestClass, String outcome) {
+        return Timer.builder("overload.request.duration")
+            .description("Request latency by priority class, admission wait included")
+            .tag("class", requestClass.name().toLowerCase())
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    static RequestClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        if (path.startsWith(FILES_PATH)) {
+            if ("HEAD".equals(method)) {
+                return RequestClass.CHECK;
+            }
+            // Everything under /uploads builds a new secret; a GET of a file consumes it
+            return path.startsWith(FILES_PATH + "/uploads") ? RequestClass.CREATE : RequestClass.CONSUME;
+        }
+        if (!path.startsWith(SECRETS_PATH)) {
+            return RequestClass.DOCS;
+        }
+        boolean collection = path.length() == SECRETS_PATH.length() || path.equals(SECRETS_PATH + "/");
+        if (path.equals(SECRETS_PATH + "/challenge")) {
+            return RequestClass.CREATE; // only ever fetched to create
+        }
+        if ("POST".equals(method)) {
+            return collection ? RequestClass.CREATE : RequestClass.CONSUME; // POST /consume is a bulk consume
+        }
+        if ("HEAD".equals(method) || path.endsWith("/metadata")) {
+            return RequestClass.CHECK;
+        }
+        return RequestClass.CONSUME;
+    }
+}
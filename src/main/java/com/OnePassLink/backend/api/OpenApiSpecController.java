@@ -0,0 +1,115 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.config.OpenApiSpecGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the OpenAPI spec generated at build time by {@link OpenApiSpecGenerator} when runtime
+ * springdoc is disabled. Both encodings are held in memory and carry their own strong ETag, so
+ * revalidation is a 304 with no body and gzip-capable clients get the pre-compressed bytes.
+ */
+@RestController
+@ConditionalOnProperty(name = "springdoc.api-docs.enabled", havingValue = "false")
+public class OpenApiSpecController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenApiSpecController.class);
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+    private final CacheControl cacheControl;
+
+    public OpenApiSpecController(ResourceLoader resourceLoader,
+                                 @Value("${app.openapi.static-location:classpath:openapi/" + OpenApiSpecGenerator.SPEC_FILE + "}") String location,
+                                 @Value("${app.openapi.cache-max-age:1h}") Duration cacheMaxAge) throws IOException {
+        Resource spec = resourceLoader.getResource(location);
+        if (spec.exists()) {
+            this.json = read(spec);
+            Resource compressed = resourceLoader.getResource(location + ".gz");
+            this.gzip = compressed.exists() ? read(compressed) : compress(json);
+            String hash = hash(json);
+            this.etag = "\"" + hash + "\"";
+            this.gzipEtag = "\"" + hash + "-gz\"";
+            logger.info("Serving static OpenAPI spec from {} ({} bytes, {} gzipped)", location, json.length, gzip.length);
+        } else {
+            this.json = null;
+            this.gzip = null;
+            this.etag = null;
+            this.gzipEtag = null;
+            logger.warn("Runtime springdoc is disabled but no static OpenAPI spec was found at {}; " +
+                "build with 'mvn package' or set SPRINGDOC_ENABLED=true", location);
+        }
+        this.cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic();
+    }
+
+    @GetMapping(value = "${springdoc.api-docs.path:/v3/api-docs}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> spec(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                       WebRequest request) {
+        if (json == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean gzipped = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String tag = gzipped ? gzipEtag : etag;
+        if (request.checkNotModified(tag)) {
+            return ResponseEntity.status(304)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .cacheControl(cacheControl)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING)
+            .contentType(MediaType.APPLICATION_JSON);
+        if (gzipped) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzipped ? gzip : json);
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
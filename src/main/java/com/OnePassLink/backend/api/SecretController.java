@@ -1,9 +1,20 @@
 package com.OnePassLink.backend.api;
 
+import com.OnePassLink.backend.model.BulkConsumeRequest;
+import com.OnePassLink.backend.model.BulkConsumeResponse;
 import com.OnePassLink.backend.model.ErrorResponse;
+import com.OnePassLink.backend.model.PowChallenge;
+import com.OnePassLink.backend.model.SecretMetadata;
 import com.OnePassLink.backend.model.SecretRequest;
 import com.OnePassLink.backend.model.SecretResponse;
 import com.OnePassLink.backend.service.SecretService;
+import com.OnePassLink.backend.service.StartupWarmup;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.DeadlineExceededException;
+import com.OnePassLink.backend.util.ProofOfWork;
+import com.OnePassLink.backend.util.RateLimiter;
+import com.OnePassLink.backend.util.RequestDeadline;
+import io.lettuce.core.RedisCommandTimeoutException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,11 +23,16 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @RestController
@@ -26,9 +42,29 @@ import java.util.Optional;
 public class SecretController {
 
     private final SecretService secretService;
+    private final RateLimiter rateLimiter;
+    private final ProofOfWork proofOfWork;
+    private final ApiKeyQuotas apiKeyQuotas;
+    private final StartupWarmup startupWarmup;
+    private final CreateAdmission createAdmission;
 
-    public SecretController(SecretService secretService) {
+    @Value("${app.secret.bulk-consume.max-ids:10}")
+    private int bulkConsumeMaxIds;
+
+    @Value("${app.security.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${app.security.rate-limit.requests-per-minute:10}")
+    private int rateLimitPerMinute;
+
+    public SecretController(SecretService secretService, RateLimiter rateLimiter, ProofOfWork proofOfWork,
+                            ApiKeyQuotas apiKeyQuotas, StartupWarmup startupWarmup, CreateAdmission createAdmission) {
         this.secretService = secretService;
+        this.rateLimiter = rateLimiter;
+        this.proofOfWork = proofOfWork;
+        this.apiKeyQuotas = apiKeyQuotas;
+        this.startupWarmup = startupWarmup;
+        this.createAdmission = createAdmission;
     }
 
     @Operation(
@@ -62,13 +98,29 @@ public class SecretController {
                 )
             )
         ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "API key quotas are enabled and the X-API-Key header carries an unknown key"
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Proof-of-work solution invalid, expired, too weak or already used"
+        ),
+        @ApiResponse(
+            responseCode = "428",
+            description = "Challenge mode is active and no proof-of-work solution was sent"
+        ),
         @ApiResponse(
             responseCode = "429",
-            description = "Rate limit exceeded",
+            description = "Rate limit or per-key quota exceeded",
             content = @Content(
                 mediaType = "application/json",
                 schema = @Schema(implementation = ErrorResponse.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Proof-of-work replay cache is full; the solution was not spent, retry after Retry-After seconds"
         )
     })
     @PostMapping
@@ -78,15 +130,78 @@ public class SecretController {
             required = true,
             schema = @Schema(implementation = SecretRequest.class)
         )
-        @Valid @RequestBody SecretRequest request) {
+        @Valid @RequestBody SecretRequest request,
+        @Parameter(description = "Challenge token from GET /api/secrets/challenge (required while challenge mode is active)")
+        @RequestHeader(value = "X-PoW-Challenge", required = false) String powChallenge,
+        @Parameter(description = "Proof-of-work solution for the challenge")
+        @RequestHeader(value = "X-PoW-Solution", required = false) String powSolution,
+        @Parameter(description = "API key; identified callers are held to per-key quotas instead of proof-of-work")
+        @RequestHeader(value = "X-API-Key", required = false) String apiKey,
+        @Parameter(hidden = true)
+        @RequestHeader(value = StartupWarmup.TOKEN_HEADER, required = false) String warmupToken) {
+        if (startupWarmup.isWarmupRequest(warmupToken)) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(secretService.createSecret(request, true));
+        }
+        CreateAdmission.Outcome admission = createAdmission.admit(apiKey, powChallenge, powSolution);
+        if (admission.rejected()) {
+            return admission.response();
+        }
+        String keyName = admission.keyName();
+        long bytes = 0;
+        Instant expiresAt = null;
+        if (keyName != null) {
+            bytes = request.getCiphertext().length();
+            expiresAt = Instant.now().plusSeconds(request.getExpiresInSec());
+            if (apiKeyQuotas.tryAcquire(keyName, bytes, expiresAt) != ApiKeyQuotas.Verdict.OK) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+            }
+        }
         try {
-            SecretResponse response = secretService.createSecret(request);
+            SecretResponse response = keyName != null
+                ? secretService.createSecret(request, keyName, expiresAt)
+                : secretService.createSecret(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (DeadlineExceededException e) {
+            releaseQuota(keyName, bytes, expiresAt);
+            throw e;
         } catch (Exception e) {
+            releaseQuota(keyName, bytes, expiresAt);
             throw new RuntimeException("Failed to create secret", e);
         }
     }
 
+    @Operation(
+        summary = "Get a proof-of-work challenge",
+        description = "Issues a signed, short-lived challenge for creating a secret. Find any solution string such that " +
+                     "SHA-256(challenge + \":\" + solution) starts with `difficulty` zero bits, then send the challenge and " +
+                     "solution in the X-PoW-Challenge and X-PoW-Solution headers of POST /api/secrets. " +
+                     "Each challenge can be used once. Difficulty rises with the create rate and Redis memory use.",
+        tags = {"Secrets"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Challenge issued",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = PowChallenge.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Challenge mode is disabled"
+        )
+    })
+    @GetMapping("/challenge")
+    public ResponseEntity<PowChallenge> getChallenge() {
+        if (!proofOfWork.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .header("Cache-Control", "no-store")
+            .body(proofOfWork.issueChallenge());
+    }
+
     @Operation(
         summary = "Retrieve and delete secret (one-time access)",
         description = "Retrieves the encrypted secret and immediately deletes it from storage. " +
@@ -182,11 +297,165 @@ public class SecretController {
         }
     }
 
+    @Operation(
+        summary = "Retrieve and delete several secrets (one-time access)",
+        description = "Consumes up to the configured maximum number of secrets in a single round trip. " +
+                     "Each ID is retrieved and deleted atomically; results are returned per ID in request order. " +
+                     "Every ID counts as one request against the caller's per-minute rate limit, so a call " +
+                     "never carries more IDs than that limit.",
+        tags = {"Secrets"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Per-ID results (consumed secrets are deleted)",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = BulkConsumeResponse.class),
+                examples = @ExampleObject(
+                    name = "Success",
+                    value = "{\"results\": [{\"id\": \"a1b2c3d4e5f6g7h8i9j0k1\", \"status\": \"OK\", " +
+                            "\"ciphertext\": \"U2FsdGVkX1+vupppZksvRf5pq5g5XjFRIipRkwB0K1Y96Qsv2Lm+31cmzaAILwyt\"}, " +
+                            "{\"id\": \"z9y8x7w6v5u4t3s2r1q0p9\", \"status\": \"GONE\"}]}"
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Too many IDs in one call",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ErrorResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "API key quotas are enabled and the X-API-Key header carries an unknown key"
+        ),
+        @ApiResponse(
+            responseCode = "429",
+            description = "Rate limit exceeded"
+        )
+    })
+    @PostMapping("/consume")
+    public ResponseEntity<?> consumeSecrets(
+        @Parameter(
+            description = "IDs of the secrets to consume",
+            required = true,
+            schema = @Schema(implementation = BulkConsumeRequest.class)
+        )
+        @Valid @RequestBody BulkConsumeRequest request,
+        @Parameter(description = "API key; identified callers are rate limited per key instead of per address")
+        @RequestHeader(value = "X-API-Key", required = false) String apiKey,
+        HttpServletRequest httpRequest) {
+        int count = request.getIds().size();
+        // A call over the per-minute limit could never be admitted
+        int maxIds = rateLimitEnabled ? Math.min(bulkConsumeMaxIds, rateLimitPerMinute) : bulkConsumeMaxIds;
+        if (count > maxIds) {
+            ErrorResponse error = new ErrorResponse(
+                "TOO_MANY_IDS",
+                "At most " + maxIds + " IDs per call",
+                HttpStatus.BAD_REQUEST.value()
+            );
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        String identifier = httpRequest.getRemoteAddr();
+        if (apiKeyQuotas.isEnabled() && apiKey != null) {
+            String keyName = apiKeyQuotas.identify(apiKey);
+            if (keyName == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            identifier = "key:" + keyName;
+        }
+        if (rateLimitEnabled && !rateLimiter.isAllowed(identifier, rateLimitPerMinute, 60, count)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+
+        return ResponseEntity.ok(secretService.consumeSecrets(request.getIds()));
+    }
+
+    @Operation(
+        summary = "Get secret metadata",
+        description = "Returns whether the secret exists, its remaining TTL and remaining views in a single " +
+                     "atomic lookup. The ciphertext is never read or returned and the secret is not consumed.",
+        tags = {"Secrets"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Secret exists",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = SecretMetadata.class),
+                examples = @ExampleObject(
+                    name = "Success",
+                    value = "{\"exists\": true, \"expiresInMs\": 10800000, \"viewsRemaining\": 1}"
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "410",
+            description = "Secret not found, expired, or already consumed"
+        )
+    })
+    @GetMapping("/{id}/metadata")
+    public ResponseEntity<SecretMetadata> getSecretMetadata(
+        @Parameter(
+            description = "Unique secret identifier to inspect",
+            required = true,
+            example = "a1b2c3d4e5f6g7h8i9j0k1l2m3n4o5p6"
+        )
+        @PathVariable String id) {
+        SecretMetadata metadata = secretService.getSecretMetadata(id);
+
+        if (metadata.isExists()) {
+            return ResponseEntity.ok(metadata);
+        } else {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+    }
+
+    private void releaseQuota(String keyName, long bytes, Instant expiresAt) {
+        if (keyName != null) {
+            apiKeyQuotas.release(keyName, bytes, expiresAt);
+        }
+    }
+
+    /**
+     * Work skipped because the caller's deadline passed; nobody is waiting for a detailed answer
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponse> handleDeadlineExceeded(DeadlineExceededException e) {
+        ErrorResponse error = new ErrorResponse(
+            "DEADLINE_EXCEEDED",
+            "Request deadline exceeded",
+            HttpStatus.GATEWAY_TIMEOUT.value()
+        );
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(error);
+    }
+
+    /**
+     * Request bodies that neither the codec nor Jackson can read
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponse> handleUnreadableBody(HttpMessageNotReadableException e) {
+        ErrorResponse error = new ErrorResponse(
+            "INVALID_JSON",
+            "Request body is not valid JSON",
+            HttpStatus.BAD_REQUEST.value()
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
     /**
      * Global exception handler for validation errors
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleException(Exception e) {
+        if (RequestDeadline.isExpired() && isRedisTimeout(e)) {
+            // A Redis command cut short by the deadline-derived timeout; other failures stay 500s
+            return handleDeadlineExceeded(null);
+        }
         ErrorResponse error = new ErrorResponse(
             "INTERNAL_ERROR",
             "An error occurred processing your request",
@@ -194,4 +463,13 @@ public class SecretController {
         );
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
+
+    private static boolean isRedisTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException || cause instanceof RedisCommandTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
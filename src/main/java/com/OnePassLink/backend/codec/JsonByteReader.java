@@ -0,0 +1,262 @@
+package com.OnePassLink.backend.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Minimal JSON reader over a byte array for flat objects with string, integer,
+ * instant and null values. Anything outside that shape raises
+ * {@link IllegalArgumentException} so callers can fall back to Jackson.
+ */
+final class JsonByteReader {
+
+    private final byte[] buf;
+    private final int end;
+    private int pos;
+    private boolean firstField = true;
+
+    JsonByteReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    void beginObject() {
+        expect('{');
+    }
+
+    /**
+     * Reads the next field name, or returns null when the closing brace is reached
+     */
+    String nextField() {
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return null;
+        }
+        if (!firstField) {
+            expect(',');
+        }
+        firstField = false;
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    void endDocument() {
+        skipWhitespace();
+        if (pos != end) {
+            throw new IllegalArgumentException("Trailing content at offset " + pos);
+        }
+    }
+
+    /**
+     * Reads a string value, or null for a JSON null literal
+     */
+    String readNullableString() {
+        skipWhitespace();
+        if (consumeNull()) {
+            return null;
+        }
+        return readString();
+    }
+
+    long readLong() {
+        skipWhitespace();
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        int start = pos;
+        long value = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            if (pos - start >= 18) {
+                throw new IllegalArgumentException("Number too long at offset " + start);
+            }
+            value = value * 10 + (buf[pos++] - '0');
+        }
+        if (pos == start) {
+            throw new IllegalArgumentException("Expected number at offset " + start);
+        }
+        return negative ? -value : value;
+    }
+
+    int readInt() {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    boolean readBoolean() {
+        skipWhitespace();
+        if (matches("true")) {
+            pos += 4;
+            return true;
+        }
+        if (matches("false")) {
+            pos += 5;
+            return false;
+        }
+        throw new IllegalArgumentException("Expected boolean at offset " + pos);
+    }
+
+    /**
+     * Reads an instant written either as an ISO-8601 string or as decimal epoch seconds
+     */
+    Instant readNullableInstant() {
+        skipWhitespace();
+        if (consumeNull()) {
+            return null;
+        }
+        if (peek() == '"') {
+            return Instant.parse(readString());
+        }
+        long seconds = readLong();
+        long nanos = 0;
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            int digits = 0;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                if (digits < 9) {
+                    nanos = nanos * 10 + (buf[pos] - '0');
+                    digits++;
+                }
+                pos++;
+            }
+            for (; digits < 9; digits++) {
+                nanos *= 10;
+            }
+        }
+        return Instant.ofEpochSecond(seconds, seconds < 0 ? -nanos : nanos);
+    }
+
+    private String readString() {
+        skipWhitespace();
+        expect('"');
+        int start = pos;
+        // Fast path: plain ASCII without escapes, which covers base64 ciphertext and IDs
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                String value = new String(buf, start, pos - start, StandardCharsets.ISO_8859_1);
+                pos++;
+                return value;
+            }
+            if (b == '\\' || b < 0x20) {
+                break;
+            }
+            pos++;
+        }
+        pos = start;
+        return readEscapedString();
+    }
+
+    private String readEscapedString() {
+        StringBuilder sb = new StringBuilder();
+        int runStart = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                appendRun(sb, runStart, pos);
+                pos++;
+                return sb.toString();
+            }
+            if (b >= 0 && b < 0x20) {
+                throw new IllegalArgumentException("Unescaped control character at offset " + pos);
+            }
+            if (b == '\\') {
+                appendRun(sb, runStart, pos);
+                pos++;
+                if (pos >= end) {
+                    break;
+                }
+                byte esc = buf[pos++];
+                switch (esc) {
+                    case '"' -> sb.append('"');
+                    case '\\' -> sb.append('\\');
+                    case '/' -> sb.append('/');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> sb.append(readHexChar());
+                    default -> throw new IllegalArgumentException("Invalid escape at offset " + (pos - 1));
+                }
+                runStart = pos;
+                continue;
+            }
+            pos++;
+        }
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private void appendRun(StringBuilder sb, int from, int to) {
+        if (to > from) {
+            sb.append(new String(buf, from, to - from, StandardCharsets.UTF_8));
+        }
+    }
+
+    private char readHexChar() {
+        if (pos + 4 > end) {
+            throw new IllegalArgumentException("Truncated unicode escape");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(buf[pos++], 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid unicode escape at offset " + (pos - 1));
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    private boolean consumeNull() {
+        if (matches("null")) {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matches(String literal) {
+        if (pos + literal.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buf[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (pos >= end || buf[pos] != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at offset " + pos);
+        }
+        pos++;
+    }
+
+    private byte peek() {
+        if (pos >= end) {
+            throw new IllegalArgumentException("Unexpected end of input");
+        }
+        return buf[pos];
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+}
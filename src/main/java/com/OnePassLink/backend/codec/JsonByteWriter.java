@@ -0,0 +1,152 @@
+package com.OnePassLink.backend.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Minimal append-only JSON writer over a growable byte array.
+ * Only supports the flat object shapes produced by {@link SecretJsonCodec}.
+ */
+final class JsonByteWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buf;
+    private int pos;
+    private boolean firstField = true;
+
+    JsonByteWriter(int initialCapacity) {
+        this.buf = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    JsonByteWriter beginObject() {
+        writeByte('{');
+        firstField = true;
+        return this;
+    }
+
+    JsonByteWriter endObject() {
+        writeByte('}');
+        return this;
+    }
+
+    /**
+     * Writes a string field, skipping it entirely when the value is null (non_null inclusion)
+     */
+    JsonByteWriter field(String name, String value) {
+        if (value == null) {
+            return this;
+        }
+        fieldName(name);
+        writeString(value);
+        return this;
+    }
+
+    JsonByteWriter field(String name, long value) {
+        fieldName(name);
+        writeAscii(Long.toString(value));
+        return this;
+    }
+
+    JsonByteWriter field(String name, boolean value) {
+        fieldName(name);
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    JsonByteWriter field(String name, Instant value) {
+        if (value == null) {
+            return this;
+        }
+        fieldName(name);
+        writeByte('"');
+        writeAscii(value.toString());
+        writeByte('"');
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private void fieldName(String name) {
+        if (!firstField) {
+            writeByte(',');
+        }
+        firstField = false;
+        writeByte('"');
+        writeAscii(name);
+        writeByte('"');
+        writeByte(':');
+    }
+
+    private void writeString(String value) {
+        int len = value.length();
+        // Invariant: room for one byte per remaining char plus the closing quote, so the ASCII
+        // fast path needs no check; wider encodings reserve their extra bytes
+        ensureCapacity(len + 2);
+        buf[pos++] = '"';
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buf[pos++] = (byte) c;
+            } else if (c == '"' || c == '\\') {
+                ensureCapacity(len - i + 2);
+                buf[pos++] = '\\';
+                buf[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                writeUnicodeEscape(c, len - i);
+            } else if (c < 0x800) {
+                ensureCapacity(len - i + 2);
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                ensureCapacity(len - i + 3);
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(len - i + 4);
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // A lone surrogate has no UTF-8 encoding; the escape keeps it intact for the reader
+                writeUnicodeEscape(c, len - i);
+            }
+        }
+        buf[pos++] = '"';
+    }
+
+    private void writeUnicodeEscape(char c, int remainingChars) {
+        ensureCapacity(remainingChars + 6);
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        buf[pos++] = HEX[c >> 12];
+        buf[pos++] = HEX[(c >> 8) & 0xF];
+        buf[pos++] = HEX[(c >> 4) & 0xF];
+        buf[pos++] = HEX[c & 0xF];
+    }
+
+    private void writeAscii(String value) {
+        int len = value.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            buf[pos++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buf[pos++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + extra));
+        }
+    }
+}
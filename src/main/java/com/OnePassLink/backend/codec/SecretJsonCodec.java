@@ -0,0 +1,222 @@
+package com.OnePassLink.backend.codec;
+
+import com.OnePassLink.backend.model.ErrorResponse;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretMetadata;
+import com.OnePassLink.backend.model.SecretRequest;
+import com.OnePassLink.backend.model.SecretResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Hand-written JSON codec for the fixed-shape secret DTOs.
+ * Reads and writes UTF-8 byte arrays directly without reflection. Output follows the
+ * same conventions as the application's Jackson setup (non_null inclusion, ISO-8601 instants).
+ * Any input the codec does not recognise raises {@link IllegalArgumentException};
+ * callers are expected to fall back to Jackson in that case.
+ */
+@Component
+public class SecretJsonCodec {
+
+    private static final Set<Class<?>> SUPPORTED_TYPES = Set.of(
+        Secret.class, SecretRequest.class, SecretResponse.class, ErrorResponse.class, SecretMetadata.class
+    );
+
+    // Small fixed overhead on top of the ciphertext for field names, ID, timestamps and quota key name
+    private static final int FIELD_OVERHEAD_BYTES = 208;
+
+    public boolean supports(Class<?> type) {
+        return SUPPORTED_TYPES.contains(type);
+    }
+
+    /**
+     * Serializes any supported DTO
+     * @param value Instance of a supported type
+     * @return UTF-8 encoded JSON
+     */
+    public byte[] write(Object value) {
+        if (value instanceof Secret secret) {
+            return writeSecret(secret);
+        } else if (value instanceof SecretResponse response) {
+            return writeSecretResponse(response);
+        } else if (value instanceof SecretRequest request) {
+            return writeSecretRequest(request);
+        } else if (value instanceof ErrorResponse error) {
+            return writeErrorResponse(error);
+        } else if (value instanceof SecretMetadata metadata) {
+            return writeSecretMetadata(metadata);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + value.getClass().getName());
+    }
+
+    /**
+     * Deserializes any supported DTO
+     * @param type Target type
+     * @param json UTF-8 encoded JSON
+     * @return Parsed instance
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(Class<T> type, byte[] json) {
+        if (type == Secret.class) {
+            return (T) readSecret(json);
+        } else if (type == SecretResponse.class) {
+            return (T) readSecretResponse(json);
+        } else if (type == SecretRequest.class) {
+            return (T) readSecretRequest(json);
+        } else if (type == ErrorResponse.class) {
+            return (T) readErrorResponse(json);
+        } else if (type == SecretMetadata.class) {
+            return (T) readSecretMetadata(json);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type.getName());
+    }
+
+    /**
+     * Serializes a stored secret. View counters are written first so that metadata
+     * lookups can read them from a short prefix of the value without the ciphertext.
+     */
+    public byte[] writeSecret(Secret secret) {
+        return new JsonByteWriter(capacityFor(secret.getCiphertext()))
+            .beginObject()
+            .field("maxViews", secret.getMaxViews())
+            .field("views", secret.getViews())
+            .field("id", secret.getId())
+            .field("createdAt", secret.getCreatedAt())
+            .field("expiresAt", secret.getExpiresAt())
+            .field("quotaKey", secret.getQuotaKey())
+            .field("ciphertext", secret.getCiphertext())
+            .endObject()
+            .toByteArray();
+    }
+
+    public Secret readSecret(byte[] json) {
+        JsonByteReader reader = new JsonByteReader(json, 0, json.length);
+        Secret secret = new Secret();
+        reader.beginObject();
+        for (String field = reader.nextField(); field != null; field = reader.nextField()) {
+            switch (field) {
+                case "id" -> secret.setId(reader.readNullableString());
+                case "ciphertext" -> secret.setCiphertext(reader.readNullableString());
+                case "createdAt" -> secret.setCreatedAt(reader.readNullableInstant());
+                case "expiresAt" -> secret.setExpiresAt(reader.readNullableInstant());
+                case "quotaKey" -> secret.setQuotaKey(reader.readNullableString());
+                case "maxViews" -> secret.setMaxViews(reader.readInt());
+                case "views" -> secret.setViews(reader.readInt());
+                default -> throw unknownField(field);
+            }
+        }
+        reader.endDocument();
+        return secret;
+    }
+
+    public byte[] writeSecretRequest(SecretRequest request) {
+        return new JsonByteWriter(capacityFor(request.getCiphertext()))
+            .beginObject()
+            .field("ciphertext", request.getCiphertext())
+            .field("expiresInSec", request.getExpiresInSec())
+            .endObject()
+            .toByteArray();
+    }
+
+    public SecretRequest readSecretRequest(byte[] json) {
+        JsonByteReader reader = new JsonByteReader(json, 0, json.length);
+        SecretRequest request = new SecretRequest();
+        reader.beginObject();
+        for (String field = reader.nextField(); field != null; field = reader.nextField()) {
+            switch (field) {
+                case "ciphertext" -> request.setCiphertext(reader.readNullableString());
+                case "expiresInSec" -> request.setExpiresInSec(reader.readLong());
+                default -> throw unknownField(field);
+            }
+        }
+        reader.endDocument();
+        return request;
+    }
+
+    public byte[] writeSecretResponse(SecretResponse response) {
+        return new JsonByteWriter(capacityFor(response.getCiphertext()))
+            .beginObject()
+            .field("id", response.getId())
+            .field("ciphertext", response.getCiphertext())
+            .endObject()
+            .toByteArray();
+    }
+
+    public SecretResponse readSecretResponse(byte[] json) {
+        JsonByteReader reader = new JsonByteReader(json, 0, json.length);
+        SecretResponse response = new SecretResponse();
+        reader.beginObject();
+        for (String field = reader.nextField(); field != null; field = reader.nextField()) {
+            switch (field) {
+                case "id" -> response.setId(reader.readNullableString());
+                case "ciphertext" -> response.setCiphertext(reader.readNullableString());
+                default -> throw unknownField(field);
+            }
+        }
+        reader.endDocument();
+        return response;
+    }
+
+    public byte[] writeErrorResponse(ErrorResponse error) {
+        return new JsonByteWriter(FIELD_OVERHEAD_BYTES)
+            .beginObject()
+            .field("error", error.getError())
+            .field("message", error.getMessage())
+            .field("status", error.getStatus())
+            .field("timestamp", error.getTimestamp())
+            .endObject()
+            .toByteArray();
+    }
+
+    public ErrorResponse readErrorResponse(byte[] json) {
+        JsonByteReader reader = new JsonByteReader(json, 0, json.length);
+        ErrorResponse error = new ErrorResponse();
+        reader.beginObject();
+        for (String field = reader.nextField(); field != null; field = reader.nextField()) {
+            switch (field) {
+                case "error" -> error.setError(reader.readNullableString());
+                case "message" -> error.setMessage(reader.readNullableString());
+                case "status" -> error.setStatus(reader.readInt());
+                case "timestamp" -> error.setTimestamp(reader.readNullableInstant());
+                default -> throw unknownField(field);
+            }
+        }
+        reader.endDocument();
+        return error;
+    }
+
+    public byte[] writeSecretMetadata(SecretMetadata metadata) {
+        return new JsonByteWriter(64)
+            .beginObject()
+            .field("exists", metadata.isExists())
+            .field("expiresInMs", metadata.getExpiresInMs())
+            .field("viewsRemaining", metadata.getViewsRemaining())
+            .endObject()
+            .toByteArray();
+    }
+
+    public SecretMetadata readSecretMetadata(byte[] json) {
+        JsonByteReader reader = new JsonByteReader(json, 0, json.length);
+        SecretMetadata metadata = new SecretMetadata();
+        reader.beginObject();
+        for (String field = reader.nextField(); field != null; field = reader.nextField()) {
+            switch (field) {
+                case "exists" -> metadata.setExists(reader.readBoolean());
+                case "expiresInMs" -> metadata.setExpiresInMs(reader.readLong());
+                case "viewsRemaining" -> metadata.setViewsRemaining(reader.readInt());
+                default -> throw unknownField(field);
+            }
+        }
+        reader.endDocument();
+        return metadata;
+    }
+
+    private static int capacityFor(String ciphertext) {
+        return FIELD_OVERHEAD_BYTES + (ciphertext != null ? ciphertext.length() : 0);
+    }
+
+    private static IllegalArgumentException unknownField(String field) {
+        return new IllegalArgumentException("Unknown field: " + field);
+    }
+}
@@ -0,0 +1,54 @@
+package com.OnePassLink.backend.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+
+/**
+ * HTTP message converter backed by {@link SecretJsonCodec}.
+ * Only claims the secret DTO types; everything else is left to the regular Jackson converter.
+ * Request bodies the codec cannot parse are handed to Jackson so unusual but valid JSON still works.
+ */
+public class SecretJsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final SecretJsonCodec codec;
+    private final ObjectMapper objectMapper;
+
+    public SecretJsonHttpMessageConverter(SecretJsonCodec codec, ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.codec = codec;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return codec.supports(clazz);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] body = StreamUtils.copyToByteArray(inputMessage.getBody());
+        try {
+            return codec.read(clazz, body);
+        } catch (RuntimeException e) {
+            try {
+                return objectMapper.readValue(body, clazz);
+            } catch (IOException jacksonError) {
+                throw new HttpMessageNotReadableException("Invalid JSON body", jacksonError, inputMessage);
+            }
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        byte[] body = codec.write(value);
+        outputMessage.getHeaders().setContentLength(body.length);
+        outputMessage.getBody().write(body);
+    }
+}
@@ -10,5 +10,7 @@ public class ActuatorConfig {
 
     // Health endpoint is enabled by default
     // Prometheus endpoint is enabled via management.endpoints.web.exposure.include=health,prometheus
+    // The on-demand JFR endpoint (profiling.JfrRecordingEndpoint) is exposed only when
+    // app.profiling.jfr.enabled=true and requires the OPS role outside the dev profile
     // All other endpoints are disabled for security
 }
@@ -4,8 +4,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
@@ -14,7 +16,27 @@ import org.springframework.security.web.SecurityFilterChain;
 @Order(1) // Higher priority than other security configs
 public class DevSecurityConfig {
 
+    /**
+     * On-demand profiling stays behind the OPS role in dev too; a recording exposes heap and
+     * lock details of whatever the instance is serving
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain devProfilingSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+            .securityMatcher("/actuator/jfr", "/actuator/jfr/**")
+            .authorizeHttpRequests(authz -> authz
+                .anyRequest().hasRole("OPS")
+            )
+            .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .httpBasic(Customizer.withDefaults());
+
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain devSecurityFilterChain(HttpSecurity http) throws Exception {
         http
             .authorizeHttpRequests(authz -> authz
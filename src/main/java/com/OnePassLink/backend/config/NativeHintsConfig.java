@@ -0,0 +1,49 @@
+package com.OnePassLink.backend.config;
+
+import com.OnePassLink.backend.model.BulkConsumeRequest;
+import com.OnePassLink.backend.model.BulkConsumeResponse;
+import com.OnePassLink.backend.model.ErrorResponse;
+import com.OnePassLink.backend.model.FileUpload;
+import com.OnePassLink.backend.model.FileUploadRequest;
+import com.OnePassLink.backend.model.PowChallenge;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretMetadata;
+import com.OnePassLink.backend.model.SecretRequest;
+import com.OnePassLink.backend.model.SecretResponse;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reflection hints for native images.
+ * Controller DTOs are registered by Spring AOT automatically, but the stored {@link Secret}
+ * record is only ever touched by Jackson through the repository's fallback path.
+ * Lettuce and Spring Data Redis ship their own hints; the Lua scripts are inline strings
+ * and need no resource hints. The build-time OpenAPI spec is a classpath resource.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.ModelHints.class)
+public class NativeHintsConfig {
+
+    static class ModelHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Secret.class,
+                SecretRequest.class,
+                SecretResponse.class,
+                SecretMetadata.class,
+                ErrorResponse.class,
+                BulkConsumeRequest.class,
+                BulkConsumeResponse.class,
+                BulkConsumeResponse.Result.class,
+                PowChallenge.class,
+                FileUploadRequest.class,
+                FileUpload.class);
+            hints.resources().registerPattern("openapi/*");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.OnePassLink.backend.config;
+
+import com.OnePassLink.backend.OnePassLinkBackendApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build-time OpenAPI spec generator, run by Maven at prepare-package.
+ *
+ * Boots the application once with runtime springdoc enabled on a random port, fetches the spec
+ * and writes {@code openapi.json} plus a maximally compressed {@code openapi.json.gz} into the given
+ * directory, where {@link com.OnePassLink.backend.api.OpenApiSpecController} serves them from when
+ * runtime springdoc is off. Never talks to Redis: the connection points at a closed local port and
+ * every startup or scheduled Redis job is switched off.
+ */
+public final class OpenApiSpecGenerator {
+
+    public static final String SPEC_FILE = "openapi.json";
+
+    private OpenApiSpecGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: OpenApiSpecGenerator <output directory>");
+        }
+        Path outputDirectory = Path.of(args[0]);
+
+        byte[] spec;
+        // Command-line arguments outrank the environment, so a build host's SPRING_DATA_REDIS_HOST,
+        // SPRING_PROFILES_ACTIVE or feature switches cannot point this run at a real Redis
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(OnePassLinkBackendApplication.class)
+                .run(
+                    "--spring.profiles.active=dev",
+                    // Nothing listens on port 1, so a Redis call that slips through fails instead of writing
+                    "--spring.data.redis.host=127.0.0.1",
+                    "--spring.data.redis.port=1",
+                    "--server.port=0",
+                    "--springdoc.api-docs.enabled=true",
+                    "--springdoc.swagger-ui.enabled=false",
+                    "--app.warmup.enabled=false",
+                    "--app.stats.keyspace.enabled=false",
+                    "--app.security.pow.mode=off",
+                    "--app.quota.enabled=false",
+                    "--app.secret.storage.compact.enabled=false",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String path = context.getEnvironment().getProperty("springdoc.api-docs.path", "/v3/api-docs");
+            spec = fetch(URI.create("http://127.0.0.1:" + port + path));
+        }
+
+        Files.createDirectories(outputDirectory);
+        Files.write(outputDirectory.resolve(SPEC_FILE), spec);
+        try (OutputStream out = new MaxGzipOutputStream(Files.newOutputStream(outputDirectory.resolve(SPEC_FILE + ".gz")))) {
+            out.write(spec);
+        }
+        System.out.printf("OpenAPI spec written to %s (%d bytes)%n", outputDirectory.resolve(SPEC_FILE), spec.length);
+    }
+
+    private static byte[] fetch(URI uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = HttpClient.newHttpClient()
+            .send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + uri + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static final class MaxGzipOutputStream extends GZIPOutputStream {
+
+        MaxGzipOutputStream(OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.OnePassLink.backend.config;
 
+import com.OnePassLink.backend.util.RequestDeadline;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.protocol.RedisCommand;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class RedisConfig {
 
@@ -24,6 +32,9 @@ public class RedisConfig {
     @Value("${spring.data.redis.database:0}")
     private int redisDatabase;
 
+    @Value("${spring.data.redis.timeout:2000ms}")
+    private Duration commandTimeout;
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
@@ -35,7 +46,18 @@ public class RedisConfig {
             config.setPassword(redisPassword);
         }
 
-        return new LettuceConnectionFactory(config);
+        // The factory is built by hand, so spring.data.redis.timeout has to be applied here;
+        // without it Lettuce waits up to 60s for a stalled Redis
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+            .commandTimeout(commandTimeout)
+            .clientOptions(ClientOptions.builder()
+                .timeoutOptions(TimeoutOptions.builder()
+                    .timeoutSource(new DeadlineTimeoutSource(commandTimeout))
+                    .build())
+                .build())
+            .build();
+
+        return new LettuceConnectionFactory(config, clientConfig);
     }
 
     @Bean
@@ -53,4 +75,30 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Per-command timeout: the configured command timeout, shortened to whatever is left of the
+     * current request's deadline. Lettuce asks on the thread that writes the command, which for
+     * RedisTemplate calls is the request thread. Expiry runs on Lettuce's shared wheel timer,
+     * so it fires with roughly 100ms granularity.
+     */
+    static final class DeadlineTimeoutSource extends TimeoutOptions.TimeoutSource {
+
+        private final long defaultNanos;
+
+        DeadlineTimeoutSource(Duration defaultTimeout) {
+            this.defaultNanos = defaultTimeout.toNanos();
+        }
+
+        @Override
+        public long getTimeout(RedisCommand<?, ?, ?> command) {
+            // Never 0: Lettuce treats non-positive timeouts as "no timeout"
+            return Math.max(Math.min(defaultNanos, RequestDeadline.remainingNanos()), 1);
+        }
+
+        @Override
+        public TimeUnit getTimeUnit() {
+            return TimeUnit.NANOSECONDS;
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package com.OnePassLink.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.web.header.HeaderWriter;
+
+/**
+ * Precomputed security header sets, one per route class, written in a single pass.
+ *
+ * Replaces Spring Security's default writer list plus the per-request CSP lambda with flat
+ * name/value arrays built once at startup. Semantics match the writers they replace: a header
+ * the application already set is left alone, HSTS is only sent over HTTPS, and the no-cache trio
+ * is skipped when any caching header is present or the status is 304.
+ */
+public final class SecurityHeaders implements HeaderWriter {
+
+    private static final String STRICT_CSP =
+        "default-src 'self'; " +
+        "script-src 'self'; " +
+        "style-src 'self' 'unsafe-inline'; " +
+        "img-src 'self' data:; " +
+        "connect-src 'self'; " +
+        "font-src 'self'; " +
+        "object-src 'none'; " +
+        "media-src 'none'; " +
+        "frame-src 'none'; " +
+        "base-uri 'self'; " +
+        "form-action 'self';";
+
+    // Relaxed CSP for Swagger UI pages
+    private static final String DOCS_CSP =
+        "default-src 'self'; " +
+        "script-src 'self' 'unsafe-inline' 'unsafe-eval'; " +
+        "style-src 'self' 'unsafe-inline'; " +
+        "img-src 'self' data: blob:; " +
+        "connect-src 'self'; " +
+        "font-src 'self'; " +
+        "object-src 'none'; " +
+        "media-src 'none'; " +
+        "frame-src 'none'; " +
+        "base-uri 'self'; " +
+        "form-action 'self';";
+
+    private static final String HSTS = "max-age=31536000 ; includeSubDomains ; preload";
+
+    private static final String[] NO_CACHE = {
+        "Cache-Control", "no-cache, no-store, max-age=0, must-revalidate",
+        "Pragma", "no-cache",
+        "Expires", "0"
+    };
+
+    private final String[] strictInsecure = headers(STRICT_CSP, false);
+    private final String[] strictSecure = headers(STRICT_CSP, true);
+    private final String[] docsInsecure;
+    private final String[] docsSecure;
+
+    private SecurityHeaders(boolean routesDocs) {
+        this.docsInsecure = routesDocs ? headers(DOCS_CSP, false) : strictInsecure;
+        this.docsSecure = routesDocs ? headers(DOCS_CSP, true) : strictSecure;
+    }
+
+    /**
+     * Strict headers for every request (the secrets API)
+     */
+    public static SecurityHeaders api() {
+        return new SecurityHeaders(false);
+    }
+
+    /**
+     * Relaxed CSP for Swagger UI and API docs, strict headers for everything else
+     */
+    public static SecurityHeaders byRoute() {
+        return new SecurityHeaders(true);
+    }
+
+    @Override
+    public void writeHeaders(HttpServletRequest request, HttpServletResponse response) {
+        String[] headers;
+        if (docsInsecure != strictInsecure && isDocs(request.getRequestURI())) {
+            headers = request.isSecure() ? docsSecure : docsInsecure;
+        } else {
+            headers = request.isSecure() ? strictSecure : strictInsecure;
+        }
+        write(response, headers);
+
+        if (!response.containsHeader("Cache-Control") && !response.containsHeader("Expires")
+                && !response.containsHeader("Pragma") && response.getStatus() != HttpServletResponse.SC_NOT_MODIFIED) {
+            write(response, NO_CACHE);
+        }
+    }
+
+    private static void write(HttpServletResponse response, String[] headers) {
+        for (int i = 0; i < headers.length; i += 2) {
+            if (!response.containsHeader(headers[i])) {
+                response.setHeader(headers[i], headers[i + 1]);
+            }
+        }
+    }
+
+    private static boolean isDocs(String path) {
+        return path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs");
+    }
+
+    private static String[] headers(String csp, boolean secure) {
+        String[] common = {
+            "X-Content-Type-Options", "nosniff",
+            "X-XSS-Protection", "0",
+            "X-Frame-Options", "DENY",
+            "Referrer-Policy", "strict-origin-when-cross-origin",
+            "Content-Security-Policy", csp,
+            "X-Permitted-Cross-Domain-Policies", "none",
+            "Cross-Origin-Embedder-Policy", "require-corp",
+            "Cross-Origin-Opener-Policy", "same-origin",
+            "Cross-Origin-Resource-Policy", "same-origin"
+        };
+        if (!secure) {
+            return common;
+        }
+        String[] withHsts = new String[common.length + 2];
+        withHsts[0] = "Strict-Transport-Security";
+        withHsts[1] = HSTS;
+        System.arraycopy(common, 0, withHsts, 2, common.length);
+        return withHsts;
+    }
+}
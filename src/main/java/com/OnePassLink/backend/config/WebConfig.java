@@ -0,0 +1,28 @@
+package com.OnePassLink.backend.config;
+
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.codec.SecretJsonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final SecretJsonCodec secretJsonCodec;
+    private final ObjectMapper objectMapper;
+
+    public WebConfig(SecretJsonCodec secretJsonCodec, ObjectMapper objectMapper) {
+        this.secretJsonCodec = secretJsonCodec;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Ahead of Jackson so the secret DTOs skip reflective databind
+        converters.add(0, new SecretJsonHttpMessageConverter(secretJsonCodec, objectMapper));
+    }
+}
@@ -0,0 +1,39 @@
+package com.OnePassLink.backend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+@Schema(
+    description = "Request to consume several secrets in one call",
+    example = """
+        {
+            "ids": ["a1b2c3d4e5f6g7h8i9j0k1", "z9y8x7w6v5u4t3s2r1q0p9"]
+        }
+        """
+)
+public class BulkConsumeRequest {
+
+    @Schema(
+        description = "Secret IDs to retrieve and delete",
+        required = true
+    )
+    @NotEmpty
+    private List<@NotBlank String> ids;
+
+    public BulkConsumeRequest() {}
+
+    public BulkConsumeRequest(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,84 @@
+package com.OnePassLink.backend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Per-ID results of a bulk consume, in request order")
+public class BulkConsumeResponse {
+
+    @Schema(description = "One result per requested ID")
+    private List<Result> results;
+
+    public BulkConsumeResponse() {}
+
+    public BulkConsumeResponse(List<Result> results) {
+        this.results = results;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public void setResults(List<Result> results) {
+        this.results = results;
+    }
+
+    @Schema(description = "Outcome for a single secret ID")
+    public static class Result {
+
+        @Schema(description = "Requested secret ID", example = "a1b2c3d4e5f6g7h8i9j0k1")
+        private String id;
+
+        @Schema(description = "OK if the secret was consumed, GONE if not found, expired or already consumed",
+            example = "OK")
+        private String status;
+
+        @Schema(
+            description = "AES-GCM encrypted secret data (only when status is OK)",
+            example = "U2FsdGVkX1+vupppZksvRf5pq5g5XjFRIipRkwB0K1Y96Qsv2Lm+31cmzaAILwyt",
+            nullable = true
+        )
+        private String ciphertext;
+
+        public Result() {}
+
+        public Result(String id, String status, String ciphertext) {
+            this.id = id;
+            this.status = status;
+            this.ciphertext = ciphertext;
+        }
+
+        public static Result ok(String id, String ciphertext) {
+            return new Result(id, "OK", ciphertext);
+        }
+
+        public static Result gone(String id) {
+            return new Result(id, "GONE", null);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getCiphertext() {
+            return ciphertext;
+        }
+
+        public void setCiphertext(String ciphertext) {
+            this.ciphertext = ciphertext;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.OnePassLink.backend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(
+    description = "State of a chunked file secret upload",
+    example = """
+        {
+            "id": "a1b2c3d4e5f6g7h8i9j0k1",
+            "sizeBytes": 5242880,
+            "chunkSizeBytes": 1048576,
+            "chunks": 5,
+            "received": [0, 1, 3]
+        }
+        """
+)
+public class FileUpload {
+
+    @Schema(
+        description = "Upload session ID; becomes the one-time secret ID once the upload is completed",
+        example = "a1b2c3d4e5f6g7h8i9j0k1"
+    )
+    private String id;
+
+    @Schema(
+        description = "Total size of the encrypted file in bytes",
+        example = "5242880"
+    )
+    private long sizeBytes;
+
+    @Schema(
+        description = "Size of every chunk except the last",
+        example = "1048576"
+    )
+    private int chunkSizeBytes;
+
+    @Schema(
+        description = "Number of chunks to upload, indexed from 0",
+        example = "5"
+    )
+    private int chunks;
+
+    @Schema(
+        description = "Indexes of the chunks already stored; upload the rest to resume",
+        example = "[0, 1, 3]"
+    )
+    private List<Integer> received;
+
+    public FileUpload() {}
+
+    public FileUpload(String id, long sizeBytes, int chunkSizeBytes, int chunks, List<Integer> received) {
+        this.id = id;
+        this.sizeBytes = sizeBytes;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.chunks = chunks;
+        this.received = received;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public int getChunkSizeBytes() {
+        return chunkSizeBytes;
+    }
+
+    public void setChunkSizeBytes(int chunkSizeBytes) {
+        this.chunkSizeBytes = chunkSizeBytes;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public List<Integer> getReceived() {
+        return received;
+    }
+
+    public void setReceived(List<Integer> received) {
+        this.received = received;
+    }
+}
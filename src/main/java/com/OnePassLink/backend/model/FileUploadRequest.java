@@ -0,0 +1,59 @@
+package com.OnePassLink.backend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+
+@Schema(
+    description = "Request to start a chunked file secret upload",
+    example = """
+        {
+            "sizeBytes": 5242880,
+            "expiresInSec": 3600
+        }
+        """
+)
+public class FileUploadRequest {
+
+    @Schema(
+        description = "Total size of the encrypted file in bytes (at most the configured maximum)",
+        example = "5242880",
+        required = true,
+        minimum = "1"
+    )
+    @Min(1)
+    private long sizeBytes;
+
+    @Schema(
+        description = "Time-to-live of the finished secret in seconds (1 minute to 7 days)",
+        example = "3600",
+        required = true,
+        minimum = "60",
+        maximum = "604800"
+    )
+    @Min(60)
+    @Max(604_800)
+    private long expiresInSec;
+
+    public FileUploadRequest() {}
+
+    public FileUploadRequest(long sizeBytes, long expiresInSec) {
+        this.sizeBytes = sizeBytes;
+        this.expiresInSec = expiresInSec;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public long getExpiresInSec() {
+        return expiresInSec;
+    }
+
+    public void setExpiresInSec(long expiresInSec) {
+        this.expiresInSec = expiresInSec;
+    }
+}
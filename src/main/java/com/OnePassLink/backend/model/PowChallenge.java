@@ -0,0 +1,68 @@
+package com.OnePassLink.backend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(
+    description = "Signed proof-of-work challenge required to create a secret while challenge mode is active",
+    example = """
+        {
+            "challenge": "ARQAAAAAZ0JbYBz0aI0w8P3kq6p9t3cD1Ew.3fY0o0cG1r2mP3F4Vq7L0A",
+            "difficulty": 20,
+            "expiresAt": "2024-01-15T10:32:00.000Z"
+        }
+        """
+)
+public class PowChallenge {
+
+    @Schema(
+        description = "Opaque challenge token; send it back unchanged in the X-PoW-Challenge header",
+        example = "ARQAAAAAZ0JbYBz0aI0w8P3kq6p9t3cD1Ew.3fY0o0cG1r2mP3F4Vq7L0A"
+    )
+    private String challenge;
+
+    @Schema(
+        description = "Required number of leading zero bits of SHA-256(challenge + \":\" + solution)",
+        example = "20"
+    )
+    private int difficulty;
+
+    @Schema(
+        description = "Time after which the challenge is no longer accepted",
+        example = "2024-01-15T10:32:00.000Z"
+    )
+    private Instant expiresAt;
+
+    public PowChallenge() {}
+
+    public PowChallenge(String challenge, int difficulty, Instant expiresAt) {
+        this.challenge = challenge;
+        this.difficulty = difficulty;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getChallenge() {
+        return challenge;
+    }
+
+    public void setChallenge(String challenge) {
+        this.challenge = challenge;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(int difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -9,6 +9,8 @@ public class Secret {
     private Instant expiresAt;
     private int maxViews = 1;
     private int views = 0;
+    // Name of the API key whose quota the secret is charged to, if any
+    private String quotaKey;
 
     public Secret() {}
 
@@ -69,6 +71,14 @@ public class Secret {
         this.views = views;
     }
 
+    public String getQuotaKey() {
+        return quotaKey;
+    }
+
+    public void setQuotaKey(String quotaKey) {
+        this.quotaKey = quotaKey;
+    }
+
 
 
 }
@@ -0,0 +1,66 @@
+package com.OnePassLink.backend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(
+    description = "Secret availability metadata (never includes the ciphertext)",
+    example = """
+        {
+            "exists": true,
+            "expiresInMs": 10800000,
+            "viewsRemaining": 1
+        }
+        """
+)
+public class SecretMetadata {
+
+    @Schema(
+        description = "Whether the secret is still available for retrieval",
+        example = "true"
+    )
+    private boolean exists;
+
+    @Schema(
+        description = "Remaining time-to-live in milliseconds",
+        example = "10800000"
+    )
+    private long expiresInMs;
+
+    @Schema(
+        description = "Number of retrievals left before the secret is deleted",
+        example = "1"
+    )
+    private int viewsRemaining;
+
+    public SecretMetadata() {}
+
+    public SecretMetadata(boolean exists, long expiresInMs, int viewsRemaining) {
+        this.exists = exists;
+        this.expiresInMs = expiresInMs;
+        this.viewsRemaining = viewsRemaining;
+    }
+
+    public boolean isExists() {
+        return exists;
+    }
+
+    public void setExists(boolean exists) {
+        this.exists = exists;
+    }
+
+    public long getExpiresInMs() {
+        return expiresInMs;
+    }
+
+    public void setExpiresInMs(long expiresInMs) {
+        this.expiresInMs = expiresInMs;
+    }
+
+    public int getViewsRemaining() {
+        return viewsRemaining;
+    }
+
+    public void setViewsRemaining(int viewsRemaining) {
+        this.viewsRemaining = viewsRemaining;
+    }
+}
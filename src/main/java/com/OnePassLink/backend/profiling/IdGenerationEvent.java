@@ -0,0 +1,11 @@
+package com.OnePassLink.backend.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("onepasslink.IdGeneration")
+@Label("ID Generation")
+@Description("Secret ID generation")
+public class IdGenerationEvent extends SecretStageEvent {
+}
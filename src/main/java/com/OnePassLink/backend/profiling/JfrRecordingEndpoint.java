@@ -0,0 +1,132 @@
+package com.OnePassLink.backend.profiling;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code POST /actuator/jfr?durationSeconds=N} starts a time-boxed Flight Recorder session with
+ * the secret stage events, allocation sampling, lock contention and CPU samples and answers
+ * {@code 202} with a handle straight away; JFR stops the recording itself after the duration.
+ * {@code GET /actuator/jfr/<id>} answers {@code 202} while it is still recording; the first call
+ * after that writes the dump and every call returns the {@code .jfr} file. One recording at a time; starting another meanwhile gets 429. Only
+ * the most recent dump is kept on disk.
+ */
+@Component
+@Endpoint(id = "jfr")
+@ConditionalOnProperty(name = "app.profiling.jfr.enabled", havingValue = "true")
+public class JfrRecordingEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrRecordingEndpoint.class);
+
+    private static final List<Class<? extends SecretStageEvent>> STAGE_EVENTS = List.of(
+        IdGenerationEvent.class, SerializationEvent.class, RedisCallEvent.class, RateLimitCheckEvent.class);
+    private static final Duration LOCK_THRESHOLD = Duration.ofMillis(10);
+    private static final int STATUS_ACCEPTED = 202;
+
+    /**
+     * What {@code POST} returns: poll {@code GET /actuator/jfr/<id>} after {@code endsAt}
+     */
+    public record Handle(String id, int durationSeconds, Instant endsAt) {
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    // Guarded by this
+    private String currentId;
+    private Recording current;
+    private Path currentDump;
+    private boolean dumped;
+
+    @Value("${app.profiling.jfr.default-duration-seconds:30}")
+    private int defaultDurationSeconds;
+
+    @Value("${app.profiling.jfr.max-duration-seconds:120}")
+    private int maxDurationSeconds;
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Handle> start(@Nullable Integer durationSeconds) throws IOException {
+        if (current != null && isRecording(current)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        int seconds = Math.max(1, Math.min(durationSeconds != null ? durationSeconds : defaultDurationSeconds,
+            maxDurationSeconds));
+        discardCurrent();
+
+        Path dump = Files.createTempFile("onepasslink-", ".jfr");
+        dump.toFile().deleteOnExit();
+        Recording jfr = new Recording();
+        jfr.setName("onepasslink-on-demand");
+        for (Class<? extends SecretStageEvent> event : STAGE_EVENTS) {
+            jfr.enable(event);
+        }
+        jfr.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+        jfr.enable("jdk.JavaMonitorEnter").withThreshold(LOCK_THRESHOLD).withStackTrace();
+        jfr.enable("jdk.JavaMonitorWait").withThreshold(LOCK_THRESHOLD).withStackTrace();
+        jfr.enable("jdk.ThreadPark").withThreshold(LOCK_THRESHOLD).withStackTrace();
+        jfr.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
+        // JFR stops the recording after the duration. It is dumped on request rather than through a
+        // destination, which JFR writes only after the state has already changed to STOPPED.
+        jfr.setDuration(Duration.ofSeconds(seconds));
+
+        log.info("Starting {}s on-demand JFR recording", seconds);
+        jfr.start();
+        currentId = Long.toString(sequence.incrementAndGet());
+        current = jfr;
+        currentDump = dump;
+        dumped = false;
+        return new WebEndpointResponse<>(new Handle(currentId, seconds, Instant.now().plusSeconds(seconds)),
+            STATUS_ACCEPTED);
+    }
+
+    @ReadOperation
+    public synchronized WebEndpointResponse<Resource> recording(@Selector String id) throws IOException {
+        if (current == null || !currentId.equals(id)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (isRecording(current)) {
+            return new WebEndpointResponse<>(STATUS_ACCEPTED);
+        }
+        if (!dumped) {
+            current.dump(currentDump);
+            dumped = true;
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(currentDump), WebEndpointResponse.STATUS_OK);
+    }
+
+    @PreDestroy
+    public synchronized void discardCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            Files.deleteIfExists(currentDump);
+            current = null;
+            currentId = null;
+            currentDump = null;
+        }
+    }
+
+    private static boolean isRecording(Recording recording) {
+        RecordingState state = recording.getState();
+        return state == RecordingState.NEW || state == RecordingState.DELAYED || state == RecordingState.RUNNING;
+    }
+}
@@ -0,0 +1,11 @@
+package com.OnePassLink.backend.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("onepasslink.RateLimitCheck")
+@Label("Rate Limit Check")
+@Description("Rate limiter round trip")
+public class RateLimitCheckEvent extends SecretStageEvent {
+}
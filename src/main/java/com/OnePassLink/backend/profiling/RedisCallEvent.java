@@ -0,0 +1,11 @@
+package com.OnePassLink.backend.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("onepasslink.RedisCall")
+@Label("Redis Call")
+@Description("Round trip to Redis for a secret operation")
+public class RedisCallEvent extends SecretStageEvent {
+}
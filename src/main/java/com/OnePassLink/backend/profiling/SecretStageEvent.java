@@ -0,0 +1,37 @@
+package com.OnePassLink.backend.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Common shape of the request-stage JFR events.
+ *
+ * Disabled by default: until a recording enables them, {@code begin()} and {@code commit()} are
+ * intrinsified to no-ops by the JIT, so the only cost on the hot path is a few field stores.
+ * Enable with {@code -XX:StartFlightRecording:settings=profile} plus the event names, or through
+ * the {@code /actuator/jfr} endpoint.
+ */
+@Category({"OnePassLink", "Secrets"})
+@Enabled(false)
+@StackTrace(false)
+public abstract class SecretStageEvent extends Event {
+
+    public static final String OK = "ok";
+    public static final String HIT = "hit";
+    public static final String MISS = "miss";
+    public static final String ERROR = "error";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Payload Size")
+    @DataAmount
+    public long payloadBytes;
+
+    @Label("Outcome")
+    public String outcome;
+}
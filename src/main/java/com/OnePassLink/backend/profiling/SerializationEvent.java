@@ -0,0 +1,11 @@
+package com.OnePassLink.backend.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("onepasslink.Serialization")
+@Label("Serialization")
+@Description("Encoding or decoding a stored secret record")
+public class SerializationEvent extends SecretStageEvent {
+}
@@ -0,0 +1,376 @@
+package com.OnePassLink.backend.repository;
+
+import com.OnePassLink.backend.util.LuaScriptProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Optional compact storage for small secrets.
+ *
+ * Small records are stored as fields of hash buckets selected by the leading bits of the decoded
+ * secret ID, so Redis keeps them in listpack encoding instead of paying per-key dictionary and
+ * expiry overhead. Each field value is prefixed with its zero-padded expiry in epoch millis
+ * ({@code 0001723372245123|{...json...}}); {@code max-record-bytes} bounds that whole value.
+ *
+ * Expiry is enforced per field with HPEXPIRE on Redis 7.4+, otherwise a background sweeper walks
+ * the buckets round-robin and drops expired fields. Reads always check the prefix, so a field the
+ * sweeper has not reached yet is never served. Each bucket key also carries the longest TTL of its
+ * fields, so abandoned buckets disappear on their own.
+ *
+ * All scripts check the regular {@code secret:<id>} key first, so records written before compact
+ * mode was enabled (or too large for a bucket) remain readable.
+ */
+@Component
+public class CompactSecretStore implements LuaScriptProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactSecretStore.class);
+    private static final RedisSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private static final String SECRET_PREFIX = "secret:";
+    private static final String BUCKET_PREFIX = "secret_bucket:";
+    /**
+     * Bucket field values start with the expiry in epoch millis, zero-padded to this many digits,
+     * and a separator
+     */
+    public static final int EXPIRY_DIGITS = 16;
+    public static final int VALUE_HEADER_BYTES = EXPIRY_DIGITS + 1;
+    private static final String BASE64_URL_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean enabled;
+    private final int maxRecordBytes;
+    private final int bucketBits;
+    private final String fieldExpiry;
+    private final int sweepBucketsPerTick;
+
+    private final DefaultRedisScript<Long> saveScript;
+    private final DefaultRedisScript<byte[]> getAndDeleteScript;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> metadataScript;
+    private final DefaultRedisScript<Long> sweepScript;
+
+    private volatile Boolean hashFieldExpirySupported;
+    private int sweepCursor;
+
+    public CompactSecretStore(
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${app.secret.storage.compact.enabled:false}") boolean enabled,
+            @Value("${app.secret.storage.compact.max-record-bytes:512}") int maxRecordBytes,
+            @Value("${app.secret.storage.compact.bucket-bits:16}") int bucketBits,
+            @Value("${app.secret.storage.compact.field-expiry:auto}") String fieldExpiry,
+            @Value("${app.secret.storage.compact.sweep-buckets-per-tick:256}") int sweepBucketsPerTick) {
+        if (bucketBits < 1 || bucketBits > 24) {
+            throw new IllegalArgumentException("app.secret.storage.compact.bucket-bits must be between 1 and 24");
+        }
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.maxRecordBytes = maxRecordBytes;
+        this.bucketBits = bucketBits;
+        this.fieldExpiry = fieldExpiry;
+        this.sweepBucketsPerTick = sweepBucketsPerTick;
+
+        // KEYS[1] = bucket, ARGV = field, value, ttl millis, use HPEXPIRE (1/0)
+        this.saveScript = new DefaultRedisScript<>();
+        this.saveScript.setScriptText(
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) " +
+            "local ttl = tonumber(ARGV[3]) " +
+            "if ARGV[4] == '1' then " +
+            "  redis.call('HPEXPIRE', KEYS[1], ttl, 'FIELDS', 1, ARGV[1]) " +
+            "end " +
+            "if redis.call('PTTL', KEYS[1]) < ttl then " +
+            "  redis.call('PEXPIRE', KEYS[1], ttl) " +
+            "end " +
+            "return 1"
+        );
+        this.saveScript.setResultType(Long.class);
+
+        // KEYS[1] = plain key, KEYS[2] = bucket, ARGV[1] = field
+        this.getAndDeleteScript = new DefaultRedisScript<>();
+        this.getAndDeleteScript.setScriptText(
+            "local value = redis.call('GET', KEYS[1]) " +
+            "if value then " +
+            "  redis.call('DEL', KEYS[1]) " +
+            "  return value " +
+            "end " +
+            "value = redis.call('HGET', KEYS[2], ARGV[1]) " +
+            "if value then " +
+            "  redis.call('HDEL', KEYS[2], ARGV[1]) " +
+            "end " +
+            "return value"
+        );
+        this.getAndDeleteScript.setResultType(byte[].class);
+
+        // KEYS[1] = plain key, KEYS[2] = bucket, ARGV[1] = field, ARGV[2] = now millis
+        this.metadataScript = new DefaultRedisScript<>();
+        this.metadataScript.setScriptText(
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "local head " +
+            "local plain = ttl ~= -2 " +
+            "if plain then " +
+            "  head = redis.call('GETRANGE', KEYS[1], 0, 63) " +
+            "else " +
+            "  local value = redis.call('HGET', KEYS[2], ARGV[1]) " +
+            "  if not value then " +
+            "    return {0, 0, 0} " +
+            "  end " +
+            "  ttl = tonumber(string.sub(value, 1, " + EXPIRY_DIGITS + ")) - tonumber(ARGV[2]) " +
+            "  if ttl <= 0 then " +
+            "    return {0, 0, 0} " +
+            "  end " +
+            "  head = string.sub(value, " + (VALUE_HEADER_BYTES + 1) + ", " + (VALUE_HEADER_BYTES + 64) + ") " +
+            "end " +
+            "local maxViews = tonumber(string.match(head, '\"maxViews\":(%d+)')) " +
+            "local views = tonumber(string.match(head, '\"views\":(%d+)')) " +
+            "if plain and (maxViews == nil or views == nil) then " +
+            "  local record = cjson.decode(redis.call('GET', KEYS[1])) " +
+            "  maxViews = tonumber(record['maxViews']) or 1 " +
+            "  views = tonumber(record['views']) or 0 " +
+            "end " +
+            "return {1, ttl, (maxViews or 1) - (views or 0)}"
+        );
+        this.metadataScript.setResultType(List.class);
+
+        // KEYS[1] = bucket to sweep, ARGV[1] = now millis.
+        // One bucket per call keeps each run short and every call on a single cluster slot.
+        this.sweepScript = new DefaultRedisScript<>();
+        this.sweepScript.setScriptText(
+            "local now = tonumber(ARGV[1]) " +
+            "local removed = 0 " +
+            "local entries = redis.call('HGETALL', KEYS[1]) " +
+            "for i = 1, #entries, 2 do " +
+            "  if tonumber(string.sub(entries[i + 1], 1, " + EXPIRY_DIGITS + ")) <= now then " +
+            "    redis.call('HDEL', KEYS[1], entries[i]) " +
+            "    removed = removed + 1 " +
+            "  end " +
+            "end " +
+            "return removed"
+        );
+        this.sweepScript.setResultType(Long.class);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@code max-record-bytes} bounds the stored field value, expiry header included, since that is
+     * what Redis compares with {@code hash-max-listpack-value}
+     * @param recordLength Size of the encoded record in bytes
+     * @return true if the record should go into a hash bucket
+     */
+    public boolean accepts(int recordLength) {
+        return enabled && recordLength + VALUE_HEADER_BYTES <= maxRecordBytes;
+    }
+
+    public void save(String id, byte[] record, Instant expiresAt) {
+        long ttlMillis = Duration.between(Instant.now(), expiresAt).toMillis();
+        byte[] value = new byte[VALUE_HEADER_BYTES + record.length];
+        writeExpiry(value, expiresAt.toEpochMilli());
+        value[EXPIRY_DIGITS] = '|';
+        System.arraycopy(record, 0, value, VALUE_HEADER_BYTES, record.length);
+
+        redisTemplate.execute(saveScript, RedisSerializer.byteArray(), LONG_SERIALIZER,
+            List.of(bucketKey(id)),
+            utf8(id), value, utf8(Long.toString(ttlMillis)), utf8(useFieldExpiry() ? "1" : "0"));
+    }
+
+    /**
+     * Atomically reads and deletes a secret from either the plain key or its bucket
+     * @param id The secret ID
+     * @return The encoded record, or null if missing or expired
+     */
+    public byte[] getAndDelete(String id) {
+        byte[] value = redisTemplate.execute(getAndDeleteScript, RedisSerializer.byteArray(),
+            RedisSerializer.byteArray(), List.of(SECRET_PREFIX + id, bucketKey(id)), utf8(id));
+        return unwrap(value);
+    }
+
+    /**
+     * Atomically reads and deletes several secrets in one round trip, pipelining the single-ID
+     * script so each call only touches the keys of its own ID
+     * @param ids The secret IDs
+     * @return Encoded records in request order, null entries for missing or expired secrets
+     */
+    public List<byte[]> getAndDeleteAll(List<String> ids) {
+        List<Object> values = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (String id : ids) {
+                    // Pipelined script calls are sent as EVAL, so NOSCRIPT cannot occur here
+                    operations.execute(getAndDeleteScript, RedisSerializer.byteArray(), RedisSerializer.byteArray(),
+                        List.of(SECRET_PREFIX + id, bucketKey(id)), utf8(id));
+                }
+                return null;
+            }
+        }, RedisSerializer.byteArray());
+
+        List<byte[]> records = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            records.add(i < values.size() ? unwrap((byte[]) values.get(i)) : null);
+        }
+        return records;
+    }
+
+    /**
+     * Strips the expiry header from bucket values; plain key records pass through unchanged
+     */
+    private static byte[] unwrap(byte[] value) {
+        if (value == null || value.length == 0 || value[0] == '{') {
+            return value; // plain key record (or nothing)
+        }
+        if (value.length <= VALUE_HEADER_BYTES || readExpiry(value) <= System.currentTimeMillis()) {
+            return null;
+        }
+        return Arrays.copyOfRange(value, VALUE_HEADER_BYTES, value.length);
+    }
+
+    /**
+     * @return Raw {exists, pttl, viewsRemaining} script result
+     */
+    public List<?> findMetadata(String id) {
+        return redisTemplate.execute(metadataScript, List.of(SECRET_PREFIX + id, bucketKey(id)),
+            id, Long.toString(System.currentTimeMillis()));
+    }
+
+    /**
+     * @return true if a record was removed from either location
+     */
+    public boolean delete(String id) {
+        boolean deleted = Boolean.TRUE.equals(redisTemplate.delete(SECRET_PREFIX + id));
+        Long fields = redisTemplate.opsForHash().delete(bucketKey(id), id);
+        return deleted || (fields != null && fields > 0);
+    }
+
+    /**
+     * Drops expired fields from a slice of buckets, one script call per bucket in a single pipeline.
+     * Not needed when Redis expires fields itself.
+     */
+    @Scheduled(fixedDelayString = "${app.secret.storage.compact.sweep-interval-ms:1000}")
+    public void sweepExpired() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (useFieldExpiry()) {
+                return;
+            }
+            int bucketCount = 1 << bucketBits;
+            int batch = Math.min(sweepBucketsPerTick, bucketCount);
+            List<String> buckets = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++) {
+                buckets.add(BUCKET_PREFIX + Integer.toHexString(sweepCursor));
+                sweepCursor = (sweepCursor + 1) & (bucketCount - 1);
+            }
+            String now = Long.toString(System.currentTimeMillis());
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String bucket : buckets) {
+                        // Pipelined script calls are sent as EVAL, so NOSCRIPT cannot occur here
+                        operations.execute(sweepScript, List.of(bucket), now);
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Compact storage sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a secret ID to its bucket using the leading bits of the base64url-decoded ID.
+     * IDs that are not valid base64url still map to a bucket, where they simply won't be found.
+     */
+    String bucketKey(String id) {
+        int prefix = 0;
+        if (id.length() >= 4) {
+            for (int i = 0; i < 4; i++) {
+                int sextet = BASE64_URL_ALPHABET.indexOf(id.charAt(i));
+                if (sextet < 0) {
+                    prefix = id.hashCode() & 0xFFFFFF;
+                    break;
+                }
+                prefix = (prefix << 6) | sextet;
+            }
+        } else {
+            prefix = id.hashCode() & 0xFFFFFF;
+        }
+        return BUCKET_PREFIX + Integer.toHexString(prefix >>> (24 - bucketBits));
+    }
+
+    private boolean useFieldExpiry() {
+        switch (fieldExpiry) {
+            case "hexpire":
+                return true;
+            case "sweeper":
+                return false;
+            default:
+                Boolean supported = hashFieldExpirySupported;
+                if (supported == null) {
+                    supported = detectHashFieldExpiry();
+                    hashFieldExpirySupported = supported;
+                }
+                return supported;
+        }
+    }
+
+    private boolean detectHashFieldExpiry() {
+        Properties info = redisTemplate.execute(
+            (RedisCallback<Properties>) connection -> connection.serverCommands().info("server"));
+        String version = info != null ? info.getProperty("redis_version") : null;
+        if (version == null) {
+            return false;
+        }
+        String[] parts = version.split("\\.");
+        int major = Integer.parseInt(parts[0]);
+        int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        return major > 7 || (major == 7 && minor >= 4);
+    }
+
+    private static void writeExpiry(byte[] value, long epochMillis) {
+        for (int i = EXPIRY_DIGITS - 1; i >= 0; i--) {
+            value[i] = (byte) ('0' + (epochMillis % 10));
+            epochMillis /= 10;
+        }
+    }
+
+    private static long readExpiry(byte[] value) {
+        long epochMillis = 0;
+        for (int i = 0; i < EXPIRY_DIGITS; i++) {
+            epochMillis = epochMillis * 10 + (value[i] - '0');
+        }
+        return epochMillis;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<RedisScript<?>> getScripts() {
+        return List.of(saveScript, getAndDeleteScript, metadataScript, sweepScript);
+    }
+}
@@ -0,0 +1,290 @@
+package com.OnePassLink.backend.repository;
+
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.OnePassLink.backend.util.LuaScriptProvider;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Redis layout for chunked file secrets. Each chunk is its own string key, so no single value is
+ * larger than one chunk and a download never needs more than one chunk in memory.
+ *
+ * <ul>
+ *   <li>{@code upload:<id>}: the open upload session; chunk writes are only accepted while it exists</li>
+ *   <li>{@code file:<id>:<n>}: chunk {@code n}; expires with the session, then with the secret</li>
+ *   <li>{@code file:<id>}: the manifest of a completed upload; its presence is what makes the
+ *       secret consumable</li>
+ * </ul>
+ */
+@Repository
+public class FileSecretStore implements LuaScriptProvider {
+
+    private static final String UPLOAD_PREFIX = "upload:";
+    private static final String FILE_PREFIX = "file:";
+
+    /**
+     * Outcome of completing an upload
+     */
+    public enum Completion {
+        OK, NO_UPLOAD, MISSING_CHUNKS, SIZE_MISMATCH
+    }
+
+    /**
+     * Upload session record: declared size, chunk size in force when the upload started, the TTL
+     * the finished secret gets and the API key it is charged to on completion (null if anonymous)
+     */
+    public record Session(long sizeBytes, int chunkSizeBytes, long expiresInSec, String quotaKey) {
+
+        public int chunks() {
+            return (int) ((sizeBytes + chunkSizeBytes - 1) / chunkSizeBytes);
+        }
+
+        /**
+         * @return the exact size chunk {@code index} must have
+         */
+        public int chunkBytes(int index) {
+            return index < chunks() - 1 ? chunkSizeBytes : (int) (sizeBytes - (long) chunkSizeBytes * (chunks() - 1));
+        }
+
+        String encode() {
+            String value = sizeBytes + ":" + chunkSizeBytes + ":" + expiresInSec;
+            return quotaKey != null ? value + ":" + quotaKey : value;
+        }
+
+        static Session decode(String value) {
+            String[] parts = value.split(":");
+            return new Session(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]),
+                parts.length > 3 ? parts[3] : null);
+        }
+    }
+
+    /**
+     * What a completed file secret consists of, plus the quota charge its consume returns
+     */
+    public record Manifest(int chunks, long sizeBytes, String quotaKey, long expiresAtMillis) {
+
+        String encode() {
+            String value = chunks + ":" + sizeBytes;
+            return quotaKey != null ? value + ":" + expiresAtMillis + ":" + quotaKey : value;
+        }
+
+        static Manifest decode(String value) {
+            String[] parts = value.split(":");
+            return parts.length > 3
+                ? new Manifest(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), parts[3], Long.parseLong(parts[2]))
+                : new Manifest(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), null, 0);
+        }
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final DeadlineGuard deadlineGuard;
+    private final DefaultRedisScript<Long> writeChunkScript;
+    private final DefaultRedisScript<Long> completeScript;
+    private final DefaultRedisScript<Long> claimScript;
+
+    public FileSecretStore(RedisTemplate<String, String> redisTemplate, DeadlineGuard deadlineGuard) {
+        this.redisTemplate = redisTemplate;
+        this.deadlineGuard = deadlineGuard;
+
+        // KEYS[1] = session, KEYS[2] = chunk, ARGV[1] = chunk bytes.
+        // The chunk inherits the session's remaining TTL, so abandoned uploads clean themselves up.
+        this.writeChunkScript = new DefaultRedisScript<>();
+        this.writeChunkScript.setScriptText(
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "if ttl <= 0 then " +
+            "  return 0 " +
+            "end " +
+            "redis.call('SET', KEYS[2], ARGV[1], 'PX', ttl) " +
+            "return 1"
+        );
+        this.writeChunkScript.setResultType(Long.class);
+
+        // KEYS[1] = session, KEYS[2] = manifest, KEYS[3..] = chunks in order;
+        // ARGV = declared size, secret TTL in ms, manifest.
+        // Checks every chunk is present and the sizes add up, then moves all chunks and the new
+        // manifest onto the secret's TTL and closes the session, all in one step.
+        this.completeScript = new DefaultRedisScript<>();
+        this.completeScript.setScriptText(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then " +
+            "  return 0 " +
+            "end " +
+            "local total = 0 " +
+            "for i = 3, #KEYS do " +
+            "  local length = redis.call('STRLEN', KEYS[i]) " +
+            "  if length == 0 then " +
+            "    return -1 " +
+            "  end " +
+            "  total = total + length " +
+            "end " +
+            "if total ~= tonumber(ARGV[1]) then " +
+            "  return -2 " +
+            "end " +
+            "for i = 3, #KEYS do " +
+            "  redis.call('PEXPIRE', KEYS[i], ARGV[2]) " +
+            "end " +
+            "redis.call('SET', KEYS[2], ARGV[3], 'PX', ARGV[2]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return 1"
+        );
+        this.completeScript.setResultType(Long.class);
+
+        // KEYS[1] = manifest, KEYS[2..] = chunks; ARGV = expected manifest, download window in ms.
+        // Deleting the manifest is the consume: from here on only the claiming download can reach
+        // the chunks, and any it does not get to expire within the window.
+        this.claimScript = new DefaultRedisScript<>();
+        this.claimScript.setScriptText(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then " +
+            "  return 0 " +
+            "end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "for i = 2, #KEYS do " +
+            "  if redis.call('PTTL', KEYS[i]) > tonumber(ARGV[2]) then " +
+            "    redis.call('PEXPIRE', KEYS[i], ARGV[2]) " +
+            "  end " +
+            "end " +
+            "return 1"
+        );
+        this.claimScript.setResultType(Long.class);
+    }
+
+    public void createSession(String id, Session session, Duration uploadTtl) {
+        deadlineGuard.check("file_upload");
+        redisTemplate.opsForValue().set(UPLOAD_PREFIX + id, session.encode(), uploadTtl);
+    }
+
+    public Optional<Session> findSession(String id) {
+        deadlineGuard.check("file_upload");
+        String value = redisTemplate.opsForValue().get(UPLOAD_PREFIX + id);
+        return Optional.ofNullable(value).map(Session::decode);
+    }
+
+    /**
+     * @return indexes of the chunks stored so far, in one pipelined round trip
+     */
+    public List<Integer> receivedChunks(String id, int chunks) {
+        deadlineGuard.check("file_upload");
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < chunks; i++) {
+                connection.keyCommands().exists(chunkKey(id, i));
+            }
+            return null;
+        });
+        List<Integer> received = new ArrayList<>();
+        for (int i = 0; i < exists.size(); i++) {
+            Object value = exists.get(i);
+            if (Boolean.TRUE.equals(value) || (value instanceof Number number && number.longValue() > 0)) {
+                received.add(i);
+            }
+        }
+        return received;
+    }
+
+    /**
+     * Stores (or replaces) one chunk while the session is open
+     * @return false if the session has expired or was completed
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean writeChunk(String id, int index, byte[] data) {
+        deadlineGuard.check("file_upload");
+        Long stored = redisTemplate.execute(writeChunkScript, (RedisSerializer) RedisSerializer.byteArray(),
+            (RedisSerializer) RedisSerializer.byteArray(), List.of(UPLOAD_PREFIX + id, FILE_PREFIX + id + ":" + index), data);
+        return stored != null && stored == 1;
+    }
+
+    /**
+     * Seals the upload into a file secret that expires at {@code expiresAt}
+     */
+    public Completion complete(String id, Session session, Instant expiresAt) {
+        deadlineGuard.check("file_complete");
+        int chunks = session.chunks();
+        List<String> keys = new ArrayList<>(chunks + 2);
+        keys.add(UPLOAD_PREFIX + id);
+        keys.add(FILE_PREFIX + id);
+        for (int i = 0; i < chunks; i++) {
+            keys.add(FILE_PREFIX + id + ":" + i);
+        }
+        long ttlMillis = Math.max(1, Duration.between(Instant.now(), expiresAt).toMillis());
+        Long result = redisTemplate.execute(completeScript, keys,
+            String.valueOf(session.sizeBytes()),
+            String.valueOf(ttlMillis),
+            new Manifest(chunks, session.sizeBytes(), session.quotaKey(), expiresAt.toEpochMilli()).encode());
+        if (result == null) {
+            return Completion.NO_UPLOAD;
+        }
+        return switch (result.intValue()) {
+            case 1 -> Completion.OK;
+            case -1 -> Completion.MISSING_CHUNKS;
+            case -2 -> Completion.SIZE_MISMATCH;
+            default -> Completion.NO_UPLOAD;
+        };
+    }
+
+    /**
+     * Consumes a file secret: removes its manifest atomically and leaves the chunks to the caller,
+     * who must read them with {@link #takeChunk} within {@code window}
+     * @return the manifest, or empty if the secret is gone or another download claimed it first
+     */
+    public Optional<Manifest> claim(String id, Duration window) {
+        deadlineGuard.checkDestructive("file_consume");
+        String value = redisTemplate.opsForValue().get(FILE_PREFIX + id);
+        if (value == null) {
+            return Optional.empty();
+        }
+        Manifest manifest = Manifest.decode(value);
+        List<String> keys = new ArrayList<>(manifest.chunks() + 1);
+        keys.add(FILE_PREFIX + id);
+        for (int i = 0; i < manifest.chunks(); i++) {
+            keys.add(FILE_PREFIX + id + ":" + i);
+        }
+        Long claimed = redisTemplate.execute(claimScript, keys, value, String.valueOf(window.toMillis()));
+        return claimed != null && claimed == 1 ? Optional.of(manifest) : Optional.empty();
+    }
+
+    /**
+     * Reads and deletes one chunk of a claimed file, as raw bytes
+     * @return the chunk, or null if it expired
+     */
+    public byte[] takeChunk(String id, int index) {
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands()
+            .getDel(chunkKey(id, index)));
+    }
+
+    /**
+     * Deletes chunks {@code from} (inclusive) to {@code to} (exclusive), e.g. after an aborted download
+     */
+    public void deleteChunks(String id, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        byte[][] keys = new byte[to - from][];
+        for (int i = from; i < to; i++) {
+            keys[i - from] = chunkKey(id, i);
+        }
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(keys));
+    }
+
+    public boolean exists(String id) {
+        deadlineGuard.check("file_exists");
+        return Boolean.TRUE.equals(redisTemplate.hasKey(FILE_PREFIX + id));
+    }
+
+    private static byte[] chunkKey(String id, int index) {
+        return (FILE_PREFIX + id + ":" + index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<RedisScript<?>> getScripts() {
+        return List.of(writeChunkScript, completeScript, claimScript);
+    }
+}
@@ -0,0 +1,149 @@
+package com.OnePassLink.backend.repository;
+
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.util.IdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owner-local cache of secrets this node created recently, bounded by entry count, total encoded
+ * size and age. Entries are only ever taken once; the caller still has to delete the Redis copy
+ * and only serve the cached secret if that delete removed something, so one-time semantics hold
+ * across nodes. Oldest entries are evicted first.
+ */
+@Component
+public class LocalSecretCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    // Insertion order, so the head is always the oldest entry
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long bytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public LocalSecretCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.secret.node-affinity.enabled:false}") boolean enabled,
+            @Value("${app.secret.node-affinity.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.secret.node-affinity.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${app.secret.node-affinity.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+
+        this.hits = Counter.builder("secrets.local_cache.lookups")
+            .description("Consumes checked against the owner-local cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.misses = Counter.builder("secrets.local_cache.lookups")
+            .description("Consumes checked against the owner-local cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        Gauge.builder("secrets.local_cache.entries", this, LocalSecretCache::size)
+            .description("Secrets held in the owner-local cache")
+            .register(meterRegistry);
+        Gauge.builder("secrets.local_cache.size", this, cache -> cache.bytes)
+            .description("Encoded size of secrets held in the owner-local cache")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Remembers a secret that was just written to Redis
+     * @param secret The stored secret
+     * @param sizeBytes Its encoded size, counted against the byte budget
+     */
+    public void put(Secret secret, int sizeBytes) {
+        // Warm-up secrets are consumed through Redis so the consume script gets warmed too
+        if (!enabled || sizeBytes > maxBytes || secret.getId().startsWith(IdGenerator.WARMUP_PREFIX)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long cachedUntil = Math.min(now + ttlMillis, secret.getExpiresAt().toEpochMilli());
+        synchronized (entries) {
+            remove(secret.getId());
+            entries.put(secret.getId(), new Entry(secret, sizeBytes, cachedUntil));
+            bytes += sizeBytes;
+            evict(now);
+        }
+    }
+
+    /**
+     * Removes and returns a cached secret
+     * @return the secret, or null if it is not cached here or its cache entry has aged out
+     */
+    public Secret take(String id) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = remove(id);
+        }
+        if (entry == null || entry.cachedUntilMillis() <= System.currentTimeMillis()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.secret();
+    }
+
+    /**
+     * Drops a cached secret without serving it
+     */
+    public void evict(String id) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (entries) {
+            remove(id);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Entry remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            bytes -= entry.sizeBytes();
+        }
+        return entry;
+    }
+
+    private void evict(long now) {
+        Iterator<Entry> oldestFirst = entries.values().iterator();
+        while (oldestFirst.hasNext()) {
+            Entry oldest = oldestFirst.next();
+            if (entries.size() <= maxEntries && bytes <= maxBytes && oldest.cachedUntilMillis() > now) {
+                return;
+            }
+            oldestFirst.remove();
+            bytes -= oldest.sizeBytes();
+        }
+    }
+
+    private record Entry(Secret secret, int sizeBytes, long cachedUntilMillis) {
+    }
+}
@@ -1,28 +1,58 @@
 package com.OnePassLink.backend.repository;
 
+import com.OnePassLink.backend.codec.SecretJsonCodec;
 import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretMetadata;
+import com.OnePassLink.backend.profiling.RedisCallEvent;
+import com.OnePassLink.backend.profiling.SecretStageEvent;
+import com.OnePassLink.backend.profiling.SerializationEvent;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.OnePassLink.backend.util.LuaScriptProvider;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public class SecretRepository {
+public class SecretRepository implements LuaScriptProvider {
 
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
-    private final DefaultRedisScript<String> getAndDeleteScript;
+    private final SecretJsonCodec codec;
+    private final CompactSecretStore compactStore;
+    private final LocalSecretCache localCache;
+    private final DeadlineGuard deadlineGuard;
+    private final DefaultRedisScript<byte[]> getAndDeleteScript;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> metadataScript;
 
     private static final String SECRET_PREFIX = "secret:";
 
-    public SecretRepository(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper) {
+    public SecretRepository(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper,
+                            SecretJsonCodec codec, CompactSecretStore compactStore, LocalSecretCache localCache,
+                            DeadlineGuard deadlineGuard) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.codec = codec;
+        this.compactStore = compactStore;
+        this.localCache = localCache;
+        this.deadlineGuard = deadlineGuard;
 
         // Lua script for atomic GET+DELETE operation
         this.getAndDeleteScript = new DefaultRedisScript<>();
@@ -35,29 +65,98 @@ public class SecretRepository {
             "  return nil " +
             "end"
         );
-        this.getAndDeleteScript.setResultType(String.class);
+        this.getAndDeleteScript.setResultType(byte[].class);
+
+        // Lua script returning {exists, pttl, viewsRemaining} in one round trip.
+        // View counters are read from the record prefix (see SecretJsonCodec#writeSecret),
+        // so the ciphertext is never copied; legacy records fall back to a full decode.
+        this.metadataScript = new DefaultRedisScript<>();
+        this.metadataScript.setScriptText(
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "if ttl == -2 then " +
+            "  return {0, 0, 0} " +
+            "end " +
+            "local head = redis.call('GETRANGE', KEYS[1], 0, 63) " +
+            "local maxViews = tonumber(string.match(head, '\"maxViews\":(%d+)')) " +
+            "local views = tonumber(string.match(head, '\"views\":(%d+)')) " +
+            "if maxViews == nil or views == nil then " +
+            "  local record = cjson.decode(redis.call('GET', KEYS[1])) " +
+            "  maxViews = tonumber(record['maxViews']) or 1 " +
+            "  views = tonumber(record['views']) or 0 " +
+            "end " +
+            "return {1, ttl, maxViews - views}"
+        );
+        this.metadataScript.setResultType(List.class);
     }
 
     public void save(Secret secret) {
+        deadlineGuard.check("save");
         try {
-            String key = SECRET_PREFIX + secret.getId();
-            String value = objectMapper.writeValueAsString(secret);
+            SerializationEvent serializationEvent = new SerializationEvent();
+            serializationEvent.begin();
+            byte[] value = codec.writeSecret(secret);
+            serializationEvent.operation = "save";
+            serializationEvent.payloadBytes = value.length;
+            serializationEvent.outcome = SecretStageEvent.OK;
+            serializationEvent.commit();
+
+            RedisCallEvent redisEvent = new RedisCallEvent();
+            redisEvent.operation = "save";
+            redisEvent.payloadBytes = value.length;
+            redisEvent.begin();
+            try {
+                if (compactStore.accepts(value.length)) {
+                    compactStore.save(secret.getId(), value, secret.getExpiresAt());
+                } else {
+                    byte[] key = (SECRET_PREFIX + secret.getId()).getBytes(StandardCharsets.UTF_8);
 
-            Duration ttl = Duration.between(Instant.now(), secret.getExpiresAt());
-            redisTemplate.opsForValue().set(key, value, ttl);
+                    Duration ttl = Duration.between(Instant.now(), secret.getExpiresAt());
+                    // Raw bytes straight to the connection, bypassing the String value serializer
+                    redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                        .set(key, value, Expiration.from(ttl), RedisStringCommands.SetOption.upsert()));
+                }
+                redisEvent.outcome = SecretStageEvent.OK;
+            } catch (RuntimeException e) {
+                redisEvent.outcome = SecretStageEvent.ERROR;
+                throw e;
+            } finally {
+                redisEvent.commit();
+            }
+            localCache.put(secret, value.length);
         } catch (Exception e) {
             throw new RuntimeException("Failed to save secret", e);
         }
     }
 
     public Optional<Secret> findAndDelete(String id) {
+        deadlineGuard.checkDestructive("consume");
+        Secret cached = localCache.take(id);
+        if (cached != null) {
+            return consumeCached(cached);
+        }
         try {
-            String key = SECRET_PREFIX + id;
-            String value = redisTemplate.execute(getAndDeleteScript, List.of(key));
+            byte[] value;
+            RedisCallEvent redisEvent = new RedisCallEvent();
+            redisEvent.operation = "findAndDelete";
+            redisEvent.begin();
+            try {
+                if (compactStore.isEnabled()) {
+                    value = compactStore.getAndDelete(id);
+                } else {
+                    value = redisTemplate.execute(getAndDeleteScript, redisTemplate.getStringSerializer(),
+                        RedisSerializer.byteArray(), List.of(SECRET_PREFIX + id));
+                }
+                redisEvent.payloadBytes = value != null ? value.length : 0;
+                redisEvent.outcome = value != null ? SecretStageEvent.HIT : SecretStageEvent.MISS;
+            } catch (RuntimeException e) {
+                redisEvent.outcome = SecretStageEvent.ERROR;
+                throw e;
+            } finally {
+                redisEvent.commit();
+            }
 
             if (value != null) {
-                Secret secret = objectMapper.readValue(value, Secret.class);
-                return Optional.of(secret);
+                return Optional.of(decode(value));
             }
             return Optional.empty();
         } catch (Exception e) {
@@ -65,13 +164,150 @@ public class SecretRepository {
         }
     }
 
+    /**
+     * Serves a secret from the owner-local cache. The Redis copy is still deleted first, and the
+     * cached secret is only returned if this delete is the one that removed it, so a consume that
+     * already happened through another node (or an expiry) wins.
+     */
+    private Optional<Secret> consumeCached(Secret cached) {
+        RedisCallEvent event = new RedisCallEvent();
+        event.operation = "consumeCached";
+        event.begin();
+        try {
+            boolean deleted = deleteStored(cached.getId());
+            event.outcome = deleted ? SecretStageEvent.HIT : SecretStageEvent.MISS;
+            return deleted ? Optional.of(cached) : Optional.empty();
+        } catch (RuntimeException e) {
+            event.outcome = SecretStageEvent.ERROR;
+            throw new RuntimeException("Failed to retrieve secret", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Atomically retrieves and deletes several secrets in a single round trip. Each ID is its own
+     * single-key consume script, pipelined, so the IDs may live on different cluster slots.
+     * @param ids The secret IDs
+     * @return One entry per ID, in request order; empty if not found
+     */
+    public List<Optional<Secret>> findAndDeleteAll(List<String> ids) {
+        deadlineGuard.checkDestructive("bulk_consume");
+        ids.forEach(localCache::evict);
+        try {
+            List<byte[]> values;
+            if (compactStore.isEnabled()) {
+                values = compactStore.getAndDeleteAll(ids);
+            } else {
+                List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings({"unchecked", "rawtypes"})
+                    public Object execute(RedisOperations operations) throws DataAccessException {
+                        for (String id : ids) {
+                            // Pipelined script calls are sent as EVAL, so NOSCRIPT cannot occur here
+                            operations.execute(getAndDeleteScript, redisTemplate.getStringSerializer(),
+                                RedisSerializer.byteArray(), List.of(SECRET_PREFIX + id));
+                        }
+                        return null;
+                    }
+                }, RedisSerializer.byteArray());
+                values = new ArrayList<>(results.size());
+                for (Object result : results) {
+                    values.add((byte[]) result);
+                }
+            }
+
+            List<Optional<Secret>> secrets = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                byte[] value = i < values.size() ? values.get(i) : null;
+                secrets.add(value != null ? Optional.of(decode(value)) : Optional.empty());
+            }
+            return secrets;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to retrieve secrets", e);
+        }
+    }
+
+    /**
+     * Decodes a stored record, falling back to Jackson for records the codec does not recognise
+     * (e.g. values written before the codec was introduced)
+     */
+    private Secret decode(byte[] value) throws IOException {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        event.operation = "decode";
+        event.payloadBytes = value.length;
+        event.outcome = SecretStageEvent.OK;
+        try {
+            return codec.readSecret(value);
+        } catch (RuntimeException e) {
+            event.outcome = "fallback";
+            return objectMapper.readValue(value, Secret.class);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads existence, remaining TTL and remaining views atomically without returning the ciphertext
+     * @param id The secret ID
+     * @return Metadata; {@code exists} is false when the secret is gone
+     */
+    public SecretMetadata findMetadata(String id) {
+        deadlineGuard.check("metadata");
+        List<?> result = compactStore.isEnabled()
+            ? compactStore.findMetadata(id)
+            : redisTemplate.execute(metadataScript, List.of(SECRET_PREFIX + id));
+
+        if (result == null || result.size() < 3 || toLong(result.get(0)) == 0) {
+            return new SecretMetadata(false, 0, 0);
+        }
+        // PTTL is -1 for keys without expiry, which never happens for secrets written by save()
+        long ttlMillis = Math.max(toLong(result.get(1)), 0);
+        int viewsRemaining = (int) Math.max(toLong(result.get(2)), 0);
+        return new SecretMetadata(true, ttlMillis, viewsRemaining);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(String.valueOf(value));
+    }
+
     public boolean exists(String id) {
+        deadlineGuard.check("exists");
+        if (compactStore.isEnabled()) {
+            return findMetadata(id).isExists();
+        }
         String key = SECRET_PREFIX + id;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        RedisCallEvent event = new RedisCallEvent();
+        event.operation = "exists";
+        event.begin();
+        try {
+            boolean exists = Boolean.TRUE.equals(redisTemplate.hasKey(key));
+            event.outcome = exists ? SecretStageEvent.HIT : SecretStageEvent.MISS;
+            return exists;
+        } catch (RuntimeException e) {
+            event.outcome = SecretStageEvent.ERROR;
+            throw e;
+        } finally {
+            event.commit();
+        }
     }
 
     public void delete(String id) {
-        String key = SECRET_PREFIX + id;
-        redisTemplate.delete(key);
+        deadlineGuard.check("delete");
+        localCache.evict(id);
+        deleteStored(id);
+    }
+
+    private boolean deleteStored(String id) {
+        if (compactStore.isEnabled()) {
+            return compactStore.delete(id);
+        }
+        return Boolean.TRUE.equals(redisTemplate.delete(SECRET_PREFIX + id));
+    }
+
+    @Override
+    public List<RedisScript<?>> getScripts() {
+        return List.of(getAndDeleteScript, metadataScript);
     }
 }
@@ -0,0 +1,203 @@
+package com.OnePassLink.backend.service;
+
+import com.OnePassLink.backend.model.FileUpload;
+import com.OnePassLink.backend.model.FileUploadRequest;
+import com.OnePassLink.backend.repository.FileSecretStore;
+import com.OnePassLink.backend.repository.FileSecretStore.Completion;
+import com.OnePassLink.backend.repository.FileSecretStore.Manifest;
+import com.OnePassLink.backend.repository.FileSecretStore.Session;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.IdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Chunked file secrets. The client encrypts the file, opens an upload, sends the chunks in any
+ * order (re-sending a chunk replaces it, so an interrupted upload resumes by sending the chunks the
+ * upload status does not list yet) and completes it, which turns the upload ID into a one-time
+ * secret ID. Nothing here ever holds more than one chunk.
+ */
+@Service
+public class FileSecretService {
+
+    /**
+     * Outcome of storing one chunk
+     */
+    public enum ChunkResult {
+        STORED, NO_UPLOAD, BAD_INDEX, BAD_SIZE
+    }
+
+    private final FileSecretStore store;
+    private final IdGenerator idGenerator;
+    private final ApiKeyQuotas apiKeyQuotas;
+    private final boolean enabled;
+    private final long maxSizeBytes;
+    private final int chunkSizeBytes;
+    private final Duration uploadTtl;
+    private final Duration downloadWindow;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+
+    public FileSecretService(
+            FileSecretStore store,
+            IdGenerator idGenerator,
+            ApiKeyQuotas apiKeyQuotas,
+            MeterRegistry meterRegistry,
+            @Value("${app.secret.file.enabled:false}") boolean enabled,
+            @Value("${app.secret.file.max-size-bytes:16777216}") long maxSizeBytes,
+            @Value("${app.secret.file.chunk-size-bytes:1048576}") int chunkSizeBytes,
+            @Value("${app.secret.file.upload-ttl-seconds:3600}") long uploadTtlSeconds,
+            @Value("${app.secret.file.download-window-seconds:300}") long downloadWindowSeconds) {
+        this.store = store;
+        this.idGenerator = idGenerator;
+        this.apiKeyQuotas = apiKeyQuotas;
+        this.enabled = enabled;
+        this.maxSizeBytes = maxSizeBytes;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.uploadTtl = Duration.ofSeconds(uploadTtlSeconds);
+        this.downloadWindow = Duration.ofSeconds(downloadWindowSeconds);
+        this.uploadedBytes = Counter.builder("secrets.files.bytes")
+            .description("Encrypted file bytes moved through chunked file secrets")
+            .baseUnit("bytes")
+            .tag("direction", "upload")
+            .register(meterRegistry);
+        this.downloadedBytes = Counter.builder("secrets.files.bytes")
+            .description("Encrypted file bytes moved through chunked file secrets")
+            .baseUnit("bytes")
+            .tag("direction", "download")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    /**
+     * Opens an upload session
+     * @param request Declared file size and the TTL of the finished secret
+     * @return The upload, with nothing received yet
+     */
+    public FileUpload startUpload(FileUploadRequest request) {
+        return startUpload(request, null);
+    }
+
+    /**
+     * @param quotaKey Name of the API key to charge when the upload is completed, or null
+     */
+    public FileUpload startUpload(FileUploadRequest request, String quotaKey) {
+        String id = idGenerator.generateId();
+        Session session = new Session(request.getSizeBytes(), chunkSizeBytes, request.getExpiresInSec(), quotaKey);
+        store.createSession(id, session, uploadTtl);
+        return new FileUpload(id, session.sizeBytes(), session.chunkSizeBytes(), session.chunks(), List.of());
+    }
+
+    /**
+     * @return the open upload session, or empty if it expired or was completed
+     */
+    public Optional<Session> findSession(String id) {
+        return store.findSession(id);
+    }
+
+    /**
+     * @return the upload with the chunks received so far, or empty if it expired or was completed
+     */
+    public Optional<FileUpload> getUpload(String id) {
+        return store.findSession(id).map(session -> new FileUpload(id, session.sizeBytes(),
+            session.chunkSizeBytes(), session.chunks(), store.receivedChunks(id, session.chunks())));
+    }
+
+    /**
+     * Reads exactly one chunk from {@code body} and stores it. Reads at most one byte more than the
+     * chunk may hold, so an oversized body never reaches the heap.
+     */
+    public ChunkResult storeChunk(String id, int index, InputStream body) throws IOException {
+        Optional<Session> found = store.findSession(id);
+        if (found.isEmpty()) {
+            return ChunkResult.NO_UPLOAD;
+        }
+        Session session = found.get();
+        if (index < 0 || index >= session.chunks()) {
+            return ChunkResult.BAD_INDEX;
+        }
+        int expected = session.chunkBytes(index);
+        byte[] data = body.readNBytes(expected + 1);
+        if (data.length != expected) {
+            return ChunkResult.BAD_SIZE;
+        }
+        if (!store.writeChunk(id, index, data)) {
+            return ChunkResult.NO_UPLOAD;
+        }
+        uploadedBytes.increment(data.length);
+        return ChunkResult.STORED;
+    }
+
+    /**
+     * Seals the upload into a one-time file secret under the same ID
+     */
+    public Completion completeUpload(String id) {
+        return store.findSession(id)
+            .map(session -> completeUpload(id, session, Instant.now().plusSeconds(session.expiresInSec())))
+            .orElse(Completion.NO_UPLOAD);
+    }
+
+    /**
+     * @param expiresAt When the file secret expires; the expiry its quota charge was made with
+     */
+    public Completion completeUpload(String id, Session session, Instant expiresAt) {
+        return store.complete(id, session, expiresAt);
+    }
+
+    /**
+     * Consumes the file secret. After this returns a manifest the secret is gone for everybody
+     * else, and the caller must {@link #stream} it.
+     * @return the manifest, or empty if not found, expired or already consumed
+     */
+    public Optional<Manifest> claimFile(String id) {
+        Optional<Manifest> claimed = store.claim(id, downloadWindow);
+        claimed.filter(manifest -> manifest.quotaKey() != null).ifPresent(manifest -> apiKeyQuotas.consumed(
+            manifest.quotaKey(), manifest.sizeBytes(), Instant.ofEpochMilli(manifest.expiresAtMillis())));
+        return claimed;
+    }
+
+    /**
+     * Writes a claimed file to {@code out} one chunk at a time. Each chunk is fetched only after the
+     * previous one has been written, so a slow reader holds back the Redis reads (blocking writes are
+     * the backpressure) and at most one chunk is in memory. Chunks not streamed are deleted. The
+     * request deadline should be lifted first; the claim already consumed the secret.
+     */
+    public void stream(String id, Manifest manifest, OutputStream out) throws IOException {
+        int next = 0;
+        try {
+            while (next < manifest.chunks()) {
+                byte[] chunk = store.takeChunk(id, next);
+                next++;
+                if (chunk == null) {
+                    throw new IOException("Chunk " + (next - 1) + " of file secret expired during download");
+                }
+                out.write(chunk);
+                downloadedBytes.increment(chunk.length);
+            }
+            out.flush();
+        } finally {
+            store.deleteChunks(id, next, manifest.chunks());
+        }
+    }
+
+    public boolean fileExists(String id) {
+        return store.exists(id);
+    }
+}
@@ -0,0 +1,249 @@
+package com.OnePassLink.backend.service;
+
+import com.OnePassLink.backend.repository.CompactSecretStore;
+import com.OnePassLink.backend.util.LuaScriptProvider;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background collector for keyspace statistics (live secrets, size and TTL distribution).
+ *
+ * Walks the secret keyspace with cursor-based SCAN, one small batch per script call, and stops
+ * each tick once its command or time budget is spent, so Redis is never blocked for long.
+ * Size and TTL samples feed Micrometer distribution summaries (exported as Prometheus quantiles);
+ * counters are published as gauges when a full pass over the keyspace completes.
+ *
+ * Compact storage buckets are sampled per field: each field is one secret, sized without its
+ * expiry header and aged by that header, and fields already expired but not yet swept are skipped.
+ *
+ * Only one instance walks the keyspace at a time. The instances share a Redis lease, and the
+ * holder renews it every tick. The others skip collection and report zero, except for
+ * {@code secrets.keyspace.collector}. Dashboards should therefore aggregate the gauges with max.
+ */
+@Component
+public class KeyspaceStatsCollector implements LuaScriptProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyspaceStatsCollector.class);
+    static final String LEASE_KEY = "stats:keyspace:lease";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean enabled;
+    private final String matchPattern;
+    private final int scanCount;
+    private final int maxCommandsPerTick;
+    private final long maxTickNanos;
+    private final long nearExpiryMillis;
+    private final long leaseMillis;
+    private final String instanceId = UUID.randomUUID().toString();
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> scanScript;
+    private final DefaultRedisScript<Long> leaseScript;
+
+    private final DistributionSummary sizeSummary;
+    private final DistributionSummary ttlSummary;
+    private final AtomicLong liveSecrets = new AtomicLong();
+    private final AtomicLong nearExpirySecrets = new AtomicLong();
+    private final AtomicLong lastPassDurationMs = new AtomicLong();
+    private final AtomicLong leaseHeld = new AtomicLong();
+
+    // Pass state, only touched by the scheduler thread
+    private String cursor = "0";
+    private long passLive;
+    private long passNearExpiry;
+    private long passStartedNanos;
+
+    public KeyspaceStatsCollector(
+            RedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.stats.keyspace.enabled:false}") boolean enabled,
+            @Value("${app.stats.keyspace.match:secret*}") String matchPattern,
+            @Value("${app.stats.keyspace.scan-count:100}") int scanCount,
+            @Value("${app.stats.keyspace.max-commands-per-tick:1000}") int maxCommandsPerTick,
+            @Value("${app.stats.keyspace.max-tick-ms:20}") long maxTickMs,
+            @Value("${app.stats.keyspace.near-expiry-seconds:3600}") long nearExpirySeconds,
+            @Value("${app.stats.keyspace.lease-ms:10000}") long leaseMillis) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.matchPattern = matchPattern;
+        this.scanCount = scanCount;
+        this.maxCommandsPerTick = maxCommandsPerTick;
+        this.maxTickNanos = TimeUnit.MILLISECONDS.toNanos(maxTickMs);
+        this.nearExpiryMillis = TimeUnit.SECONDS.toMillis(nearExpirySeconds);
+        this.leaseMillis = leaseMillis;
+
+        // One SCAN step plus one size/TTL sample per secret in a single round trip: STRLEN / PTTL for
+        // plain keys, and for bucket hashes one sample per live field read from its expiry header.
+        // ARGV = cursor, match, count, now millis.
+        // Returns {nextCursor, commandsIssued, size1, pttl1, size2, pttl2, ...}
+        this.scanScript = new DefaultRedisScript<>();
+        this.scanScript.setScriptText(
+            "local now = tonumber(ARGV[4]) " +
+            "local scan = redis.call('SCAN', ARGV[1], 'MATCH', ARGV[2], 'COUNT', ARGV[3]) " +
+            "local out = {scan[1], 0} " +
+            "local commands = 1 " +
+            "for _, key in ipairs(scan[2]) do " +
+            "  commands = commands + 2 " +
+            "  if redis.call('TYPE', key)['ok'] == 'hash' then " +
+            "    local entries = redis.call('HGETALL', key) " +
+            "    for i = 2, #entries, 2 do " +
+            "      local expiry = tonumber(string.sub(entries[i], 1, " + CompactSecretStore.EXPIRY_DIGITS + ")) " +
+            "      if expiry and expiry > now then " +
+            "        out[#out + 1] = #entries[i] - " + CompactSecretStore.VALUE_HEADER_BYTES + " " +
+            "        out[#out + 1] = expiry - now " +
+            "      end " +
+            "    end " +
+            "  else " +
+            "    local ttl = redis.call('PTTL', key) " +
+            "    if ttl ~= -2 then " +
+            "      commands = commands + 1 " +
+            "      out[#out + 1] = redis.call('STRLEN', key) " +
+            "      out[#out + 1] = ttl " +
+            "    end " +
+            "  end " +
+            "end " +
+            "out[2] = commands " +
+            "return out"
+        );
+        this.scanScript.setResultType(List.class);
+
+        // KEYS[1] = lease, ARGV = instance ID, lease millis; takes a free lease or renews our own
+        this.leaseScript = new DefaultRedisScript<>();
+        this.leaseScript.setScriptText(
+            "local owner = redis.call('GET', KEYS[1]) " +
+            "if not owner then " +
+            "  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "  return 1 " +
+            "end " +
+            "if owner == ARGV[1] then " +
+            "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "  return 1 " +
+            "end " +
+            "return 0"
+        );
+        this.leaseScript.setResultType(Long.class);
+
+        this.sizeSummary = DistributionSummary.builder("secrets.keyspace.key.size")
+            .description("Sampled encoded size per secret, without the compact storage expiry header")
+            .baseUnit("bytes")
+            .publishPercentiles(0.5, 0.9, 0.99)
+            .register(meterRegistry);
+        this.ttlSummary = DistributionSummary.builder("secrets.keyspace.key.ttl")
+            .description("Sampled remaining TTL per secret")
+            .baseUnit("seconds")
+            .publishPercentiles(0.1, 0.5, 0.9)
+            .register(meterRegistry);
+        Gauge.builder("secrets.keyspace.live", liveSecrets, AtomicLong::get)
+            .description("Live secrets counted in the last complete keyspace pass")
+            .register(meterRegistry);
+        Gauge.builder("secrets.keyspace.near_expiry", nearExpirySecrets, AtomicLong::get)
+            .description("Secrets expiring within the near-expiry window in the last complete pass")
+            .register(meterRegistry);
+        Gauge.builder("secrets.keyspace.pass.duration", lastPassDurationMs, AtomicLong::get)
+            .description("Wall-clock duration of the last complete keyspace pass")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        Gauge.builder("secrets.keyspace.collector", leaseHeld, AtomicLong::get)
+            .description("1 while this instance holds the collection lease and publishes keyspace stats")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.keyspace.interval-ms:1000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        long deadline = System.nanoTime() + maxTickNanos;
+        int commands = 0;
+        try {
+            if (!holdsLease()) {
+                return;
+            }
+            do {
+                if ("0".equals(cursor)) {
+                    passStartedNanos = System.nanoTime();
+                }
+                List<?> result = redisTemplate.execute(scanScript, List.of(),
+                    cursor, matchPattern, String.valueOf(scanCount), String.valueOf(System.currentTimeMillis()));
+                if (result == null || result.size() < 2) {
+                    return;
+                }
+                commands += (int) toLong(result.get(1));
+                record(result);
+
+                cursor = String.valueOf(result.get(0));
+                if ("0".equals(cursor)) {
+                    completePass();
+                    return;
+                }
+            } while (commands < maxCommandsPerTick && System.nanoTime() < deadline);
+        } catch (RuntimeException e) {
+            log.warn("Keyspace stats collection failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes or renews the collection lease. An instance that loses it drops its partial pass and
+     * stops publishing, so the gauges only ever come from one complete pass by the holder.
+     */
+    private boolean holdsLease() {
+        Long held = redisTemplate.execute(leaseScript, List.of(LEASE_KEY), instanceId, String.valueOf(leaseMillis));
+        if (held != null && held == 1) {
+            leaseHeld.set(1);
+            return true;
+        }
+        if (leaseHeld.getAndSet(0) == 1 || !"0".equals(cursor)) {
+            cursor = "0";
+            passLive = 0;
+            passNearExpiry = 0;
+            liveSecrets.set(0);
+            nearExpirySecrets.set(0);
+        }
+        return false;
+    }
+
+    private void record(List<?> result) {
+        for (int i = 2; i + 1 < result.size(); i += 2) {
+            long size = toLong(result.get(i));
+            long pttl = toLong(result.get(i + 1));
+            passLive++;
+            sizeSummary.record(size);
+            if (pttl >= 0) {
+                ttlSummary.record(pttl / 1000.0);
+                if (pttl < nearExpiryMillis) {
+                    passNearExpiry++;
+                }
+            }
+        }
+    }
+
+    private void completePass() {
+        liveSecrets.set(passLive);
+        nearExpirySecrets.set(passNearExpiry);
+        lastPassDurationMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - passStartedNanos));
+        passLive = 0;
+        passNearExpiry = 0;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(String.valueOf(value));
+    }
+
+    @Override
+    public List<RedisScript<?>> getScripts() {
+        return List.of(scanScript, leaseScript);
+    }
+}
@@ -1,13 +1,22 @@
 package com.OnePassLink.backend.service;
 
+import com.OnePassLink.backend.model.BulkConsumeResponse;
 import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretMetadata;
 import com.OnePassLink.backend.model.SecretRequest;
 import com.OnePassLink.backend.model.SecretResponse;
+import com.OnePassLink.backend.profiling.IdGenerationEvent;
+import com.OnePassLink.backend.profiling.SecretStageEvent;
 import com.OnePassLink.backend.repository.SecretRepository;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
 import com.OnePassLink.backend.util.IdGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -15,10 +24,18 @@ public class SecretService {
 
     private final SecretRepository secretRepository;
     private final IdGenerator idGenerator;
+    private final ApiKeyQuotas apiKeyQuotas;
+    private final Timer metadataTimer;
 
-    public SecretService(SecretRepository secretRepository, IdGenerator idGenerator) {
+    public SecretService(SecretRepository secretRepository, IdGenerator idGenerator, ApiKeyQuotas apiKeyQuotas,
+                         MeterRegistry meterRegistry) {
         this.secretRepository = secretRepository;
         this.idGenerator = idGenerator;
+        this.apiKeyQuotas = apiKeyQuotas;
+        this.metadataTimer = Timer.builder("secrets.metadata.latency")
+            .description("Latency of secret metadata lookups")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
     }
 
     /**
@@ -27,18 +44,44 @@ public class SecretService {
      * @return SecretResponse with the generated ID
      */
     public SecretResponse createSecret(SecretRequest request) {
-        String id = idGenerator.generateId();
-        Instant now = Instant.now();
-        Instant expiresAt = now.plusSeconds(request.getExpiresInSec());
+        return createSecret(request, false);
+    }
+
+    /**
+     * @param warmup Whether this is a startup warm-up secret, stored under {@link IdGenerator#WARMUP_PREFIX}
+     */
+    public SecretResponse createSecret(SecretRequest request, boolean warmup) {
+        return createSecret(request, warmup, null, Instant.now().plusSeconds(request.getExpiresInSec()));
+    }
+
+    /**
+     * Creates a secret charged to an API key's quota. It expires exactly when the charge does, and
+     * its record keeps the key name so that consuming it returns the charge.
+     * @param quotaKey Name of the charged API key
+     * @param expiresAt Expiry the quota was charged with
+     */
+    public SecretResponse createSecret(SecretRequest request, String quotaKey, Instant expiresAt) {
+        return createSecret(request, false, quotaKey, expiresAt);
+    }
+
+    private SecretResponse createSecret(SecretRequest request, boolean warmup, String quotaKey, Instant expiresAt) {
+        IdGenerationEvent idEvent = new IdGenerationEvent();
+        idEvent.begin();
+        String id = warmup ? IdGenerator.WARMUP_PREFIX + idGenerator.generateId() : idGenerator.generateId();
+        idEvent.operation = "create";
+        idEvent.payloadBytes = id.length();
+        idEvent.outcome = SecretStageEvent.OK;
+        idEvent.commit();
 
         Secret secret = new Secret(
             id,
             request.getCiphertext(),
-            now,
+            Instant.now(),
             expiresAt,
             1, // maxViews - default to 1 for one-time secrets
             0  // views - starts at 0
         );
+        secret.setQuotaKey(quotaKey);
 
         secretRepository.save(secret);
         return new SecretResponse(id);
@@ -50,25 +93,48 @@ public class SecretService {
      * @return SecretResponse with ciphertext if found, empty if not found or expired
      */
     public Optional<SecretResponse> getAndDeleteSecret(String id) {
-        Optional<Secret> secretOpt = secretRepository.findAndDelete(id);
+        return secretRepository.findAndDelete(id).flatMap(this::consumed);
+    }
 
-        if (secretOpt.isPresent()) {
-            Secret secret = secretOpt.get();
+    /**
+     * Retrieves and deletes several secrets in one round trip, atomically per ID
+     * @param ids The secret IDs
+     * @return BulkConsumeResponse with one result per ID, in request order
+     */
+    public BulkConsumeResponse consumeSecrets(List<String> ids) {
+        List<Optional<Secret>> secrets = secretRepository.findAndDeleteAll(ids);
+        List<BulkConsumeResponse.Result> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            results.add(secrets.get(i).flatMap(this::consumed)
+                .map(response -> BulkConsumeResponse.Result.ok(id, response.getCiphertext()))
+                .orElseGet(() -> BulkConsumeResponse.Result.gone(id)));
+        }
+        return new BulkConsumeResponse(results);
+    }
 
-            // Check if secret has expired (redundant with Redis TTL, but good practice)
-            if (secret.getExpiresAt().isBefore(Instant.now())) {
-                return Optional.empty();
-            }
+    /**
+     * Returns the quota charge of a deleted secret, then maps it like any other
+     */
+    private Optional<SecretResponse> consumed(Secret secret) {
+        if (secret.getQuotaKey() != null && secret.getExpiresAt() != null) {
+            apiKeyQuotas.consumed(secret.getQuotaKey(), secret.getCiphertext().length(), secret.getExpiresAt());
+        }
+        return toResponse(secret);
+    }
 
-            // Check if already viewed max times (future-proofing)
-            if (secret.getViews() >= secret.getMaxViews()) {
-                return Optional.empty();
-            }
+    private Optional<SecretResponse> toResponse(Secret secret) {
+        // Check if secret has expired (redundant with Redis TTL, but good practice)
+        if (secret.getExpiresAt().isBefore(Instant.now())) {
+            return Optional.empty();
+        }
 
-            return Optional.of(new SecretResponse(secret.getId(), secret.getCiphertext()));
+        // Check if already viewed max times (future-proofing)
+        if (secret.getViews() >= secret.getMaxViews()) {
+            return Optional.empty();
         }
 
-        return Optional.empty();
+        return Optional.of(new SecretResponse(secret.getId(), secret.getCiphertext()));
     }
 
     /**
@@ -79,4 +145,13 @@ public class SecretService {
     public boolean secretExists(String id) {
         return secretRepository.exists(id);
     }
+
+    /**
+     * Reads existence, remaining TTL and remaining views without touching the ciphertext
+     * @param id The secret ID
+     * @return SecretMetadata; exists is false if not found or expired
+     */
+    public SecretMetadata getSecretMetadata(String id) {
+        return metadataTimer.record(() -> secretRepository.findMetadata(id));
+    }
 }
@@ -0,0 +1,222 @@
+package com.OnePassLink.backend.service;
+
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.model.SecretRequest;
+import com.OnePassLink.backend.util.LuaScriptProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Startup warm-up that runs before the instance reports ready.
+ *
+ * Spring Boot only flips the readiness state to ACCEPTING_TRAFFIC once all application runners
+ * have completed, so while this runs the readiness probe keeps reporting OUT_OF_SERVICE. The web
+ * server is already listening by then, so the synthetic create, HEAD, metadata and consume cycle is
+ * sent over loopback HTTP and warms the same filters, converters and controllers real traffic uses.
+ * Warm-up creates carry a per-boot token that is only honoured while the warm-up runs; they skip
+ * admission and land in the reserved {@code warmup-} ID namespace, which the owner-local cache
+ * never holds, so consumes take the Redis path even with node affinity enabled.
+ * It opens and verifies the Redis connection, preloads every Lua script, then loops the cycle until
+ * per-iteration latency settles (or the iteration/time budget runs out).
+ * Failures are logged and never block startup.
+ */
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    /**
+     * Header carrying the warm-up token on loopback warm-up requests
+     */
+    public static final String TOKEN_HEADER = "X-Warmup-Token";
+    private static final String WARMUP_CIPHERTEXT = "U2FsdGVkX1+vupppZksvRf5pq5g5XjFRIipRkwB0K1Y96Qsv2Lm+31cmzaAILwyt";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final SecretJsonCodec codec;
+    private final ApplicationContext applicationContext;
+    private final List<LuaScriptProvider> scriptProviders;
+    private final Timer warmupTimer;
+    private final String token;
+    private volatile boolean running;
+
+    @Value("${app.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.warmup.min-iterations:100}")
+    private int minIterations;
+
+    @Value("${app.warmup.max-iterations:5000}")
+    private int maxIterations;
+
+    @Value("${app.warmup.max-duration-ms:30000}")
+    private long maxDurationMs;
+
+    @Value("${app.warmup.window:50}")
+    private int window;
+
+    @Value("${app.warmup.settle-tolerance:0.10}")
+    private double settleTolerance;
+
+    public StartupWarmup(RedisTemplate<String, String> redisTemplate, SecretJsonCodec codec,
+                         ApplicationContext applicationContext, List<LuaScriptProvider> scriptProviders,
+                         MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.applicationContext = applicationContext;
+        this.scriptProviders = scriptProviders;
+        this.warmupTimer = Timer.builder("app.warmup.duration")
+            .description("Time spent warming up before accepting traffic")
+            .register(meterRegistry);
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+    }
+
+    /**
+     * @return true if {@code presented} is this boot's warm-up token and the warm-up is still running
+     */
+    public boolean isWarmupRequest(String presented) {
+        return running && presented != null
+            && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        running = true;
+        try {
+            verifyConnection();
+            int scripts = preloadScripts();
+            int iterations = exerciseHotPaths(started);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            log.info("Warm-up finished in {} ms ({} scripts loaded, {} iterations)",
+                elapsed.toMillis(), scripts, iterations);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up aborted, accepting traffic cold: {}", e.getMessage());
+        } finally {
+            running = false;
+            warmupTimer.record(Duration.ofNanos(System.nanoTime() - started));
+        }
+    }
+
+    private void verifyConnection() {
+        String pong = redisTemplate.execute((RedisCallback<String>) connection -> connection.ping());
+        if (!"PONG".equalsIgnoreCase(pong)) {
+            throw new IllegalStateException("Unexpected PING reply: " + pong);
+        }
+    }
+
+    private int preloadScripts() {
+        return redisTemplate.execute((RedisCallback<Integer>) connection -> {
+            int loaded = 0;
+            for (LuaScriptProvider provider : scriptProviders) {
+                for (RedisScript<?> script : provider.getScripts()) {
+                    connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                    loaded++;
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Runs the synthetic cycle until the median latency of the last window is within
+     * the settle tolerance of the previous window's median
+     */
+    private int exerciseHotPaths(long started) {
+        if (!(applicationContext instanceof WebServerApplicationContext web) || web.getWebServer() == null) {
+            return 0;
+        }
+        URI base = URI.create("http://127.0.0.1:" + web.getWebServer().getPort() + "/api/secrets");
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+        byte[] createBody = codec.writeSecretRequest(new SecretRequest(WARMUP_CIPHERTEXT, 60));
+
+        long deadline = started + Duration.ofMillis(maxDurationMs).toNanos();
+        long[] latencies = new long[window];
+        long previousMedian = -1;
+        int iteration = 0;
+        while (iteration < maxIterations && System.nanoTime() < deadline) {
+            long t0 = System.nanoTime();
+            runCycle(client, base, createBody);
+            latencies[iteration % window] = System.nanoTime() - t0;
+            iteration++;
+
+            if (iteration % window == 0) {
+                long median = median(latencies);
+                if (iteration >= minIterations && previousMedian > 0
+                        && Math.abs(median - previousMedian) <= previousMedian * settleTolerance) {
+                    break;
+                }
+                previousMedian = median;
+            }
+        }
+        return iteration;
+    }
+
+    private void runCycle(HttpClient client, URI base, byte[] createBody) {
+        HttpResponse<byte[]> created = send(client, HttpRequest.newBuilder(base)
+            .header("Content-Type", "application/json")
+            .header(TOKEN_HEADER, token)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(createBody)), 201);
+        URI secret = URI.create(base + "/" + codec.readSecretResponse(created.body()).getId());
+
+        send(client, HttpRequest.newBuilder(secret).method("HEAD", HttpRequest.BodyPublishers.noBody()), 200);
+        send(client, HttpRequest.newBuilder(URI.create(secret + "/metadata")).GET(), 200);
+        send(client, HttpRequest.newBuilder(secret).GET(), 200);
+    }
+
+    private static HttpResponse<byte[]> send(HttpClient client, HttpRequest.Builder request, int expectedStatus) {
+        try {
+            HttpResponse<byte[]> response = client.send(request.timeout(REQUEST_TIMEOUT).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != expectedStatus) {
+                throw new IllegalStateException(response.request().method() + " " + response.request().uri()
+                    + " returned " + response.statusCode());
+            }
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,497 @@
+package com.OnePassLink.backend.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-API-key quotas on secret creation: creates per minute, stored bytes and live secrets.
+ *
+ * Admission never touches Redis. Each node reserves its own usage per resource with a CAS loop, so
+ * {@code last global snapshot + unsettled local usage} never exceeds the limit however many threads
+ * admit at once. A scheduled flush pushes every key's deltas in one pipeline. For each key, one
+ * atomic script applies the deltas, drops expired buckets and returns the new global totals. Live
+ * secrets and bytes are counted in expiry buckets of {@link #BUCKET_MILLIS}, so a secret stops
+ * counting once its TTL ends. A consumed secret stops counting earlier: its record carries the key
+ * name, so the consume path applies a negative delta to its bucket without an owner lookup.
+ *
+ * Overshoot is bounded by {@code overshoot}: a node admits at most {@code limit * overshoot} of each
+ * resource between flushes, except that a single create larger than that allowance (a large file)
+ * is admitted alone while the node has nothing unsettled and the global headroom covers it. The
+ * cluster can therefore exceed a limit by at most {@code (nodes - 1) * max(limit * overshoot, largest create)}.
+ */
+@Component
+public class ApiKeyQuotas implements LuaScriptProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyQuotas.class);
+
+    public enum Verdict {
+        OK, CREATES, BYTES, LIVE
+    }
+
+    static final long BUCKET_MILLIS = 60_000;
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final Pattern KEY_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    private static final String KEY_PREFIX = "quota:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean enabled;
+    private final long createsPerMinute;
+    private final long maxStoredBytes;
+    private final long maxLiveSecrets;
+    private final long localCreates;
+    private final long localBytes;
+    private final long localLive;
+    private final long hashTtlSeconds;
+    private final Map<String, String> namesByKeyHash;
+    private final Map<String, KeyUsage> usage;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> flushScript;
+
+    public ApiKeyQuotas(
+            RedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.quota.enabled:false}") boolean enabled,
+            @Value("${app.quota.keys:}") String keys,
+            @Value("${app.quota.creates-per-minute:600}") long createsPerMinute,
+            @Value("${app.quota.max-stored-bytes:104857600}") long maxStoredBytes,
+            @Value("${app.quota.max-live-secrets:10000}") long maxLiveSecrets,
+            @Value("${app.quota.overshoot:0.05}") double overshoot,
+            @Value("${app.secret.max-ttl-seconds:604800}") long maxTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.createsPerMinute = createsPerMinute;
+        this.maxStoredBytes = maxStoredBytes;
+        this.maxLiveSecrets = maxLiveSecrets;
+        this.localCreates = localAllowance(createsPerMinute, overshoot);
+        this.localBytes = localAllowance(maxStoredBytes, overshoot);
+        this.localLive = localAllowance(maxLiveSecrets, overshoot);
+        this.hashTtlSeconds = maxTtlSeconds + TimeUnit.MILLISECONDS.toSeconds(2 * BUCKET_MILLIS);
+        this.namesByKeyHash = parseKeys(keys);
+        this.usage = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(namesByKeyHash.values())) {
+            usage.put(name, new KeyUsage(name, meterRegistry));
+        }
+        if (enabled && usage.isEmpty()) {
+            log.warn("API key quotas are enabled but app.quota.keys is empty; every API key will be rejected");
+        }
+
+        // KEYS[1] = quota hash; ARGV = nowBucket, minute, createsDelta, then (bucket, live, bytes) triples.
+        // Returns {creates this minute, live secrets, stored bytes}.
+        this.flushScript = new DefaultRedisScript<>();
+        this.flushScript.setScriptText(
+            "local key = KEYS[1] " +
+            "local now = tonumber(ARGV[1]) " +
+            "if redis.call('HGET', key, 'cm') ~= ARGV[2] then " +
+            "  redis.call('HSET', key, 'cm', ARGV[2], 'c', 0) " +
+            "end " +
+            "redis.call('HINCRBY', key, 'c', ARGV[3]) " +
+            "for i = 4, #ARGV, 3 do " +
+            "  redis.call('HINCRBY', key, 'l:' .. ARGV[i], ARGV[i + 1]) " +
+            "  redis.call('HINCRBY', key, 'b:' .. ARGV[i], ARGV[i + 2]) " +
+            "  redis.call('HINCRBY', key, 'live', ARGV[i + 1]) " +
+            "  redis.call('HINCRBY', key, 'bytes', ARGV[i + 2]) " +
+            "end " +
+            "local pruned = tonumber(redis.call('HGET', key, 'pruned') or now) " +
+            "for b = pruned + 1, now do " +
+            "  local live = redis.call('HGET', key, 'l:' .. b) " +
+            "  if live then " +
+            "    redis.call('HINCRBY', key, 'live', -tonumber(live)) " +
+            "    redis.call('HINCRBY', key, 'bytes', -tonumber(redis.call('HGET', key, 'b:' .. b) or '0')) " +
+            "    redis.call('HDEL', key, 'l:' .. b, 'b:' .. b) " +
+            "  end " +
+            "end " +
+            "redis.call('HSET', key, 'pruned', math.max(pruned, now)) " +
+            "redis.call('EXPIRE', key, " + hashTtlSeconds + ") " +
+            "return {tonumber(redis.call('HGET', key, 'c')), " +
+            "  tonumber(redis.call('HGET', key, 'live') or '0'), " +
+            "  tonumber(redis.call('HGET', key, 'bytes') or '0')}"
+        );
+        this.flushScript.setResultType(List.class);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the configured name of the presented API key, or null if it is unknown
+     */
+    public String identify(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return null;
+        }
+        return namesByKeyHash.get(hash(apiKey.trim()));
+    }
+
+    /**
+     * Admits one create of {@code bytes} expiring at {@code expiresAt} against the key's quotas,
+     * using only node-local state
+     */
+    public Verdict tryAcquire(String name, long bytes, Instant expiresAt) {
+        KeyUsage key = usage.get(name);
+        Verdict verdict = key.admit(bytes, expiresAt.toEpochMilli());
+        if (verdict != Verdict.OK) {
+            key.rejected.get(verdict).increment();
+        }
+        return verdict;
+    }
+
+    /**
+     * Whether a create of {@code bytes} would currently fit the key's stored-bytes and live-secret
+     * quotas, without reserving anything. Lets a large upload be refused before its chunks are sent;
+     * {@link #tryAcquire} still decides when it is stored.
+     */
+    public Verdict check(String name, long bytes) {
+        KeyUsage key = usage.get(name);
+        Verdict verdict = key.fits(bytes);
+        if (verdict != Verdict.OK) {
+            key.rejected.get(verdict).increment();
+        }
+        return verdict;
+    }
+
+    /**
+     * Returns an admitted create that did not happen (e.g. the write failed)
+     */
+    public void release(String name, long bytes, Instant expiresAt) {
+        usage.get(name).add(-1, -1, -bytes, expiresAt.toEpochMilli());
+    }
+
+    /**
+     * Stops counting a consumed secret towards the key's live secrets and stored bytes before its
+     * TTL ends. Only local state changes; the next flush carries the delta to its expiry bucket.
+     */
+    public void consumed(String name, long bytes, Instant expiresAt) {
+        KeyUsage key = enabled ? usage.get(name) : null;
+        if (key != null) { // null if the key was removed from app.quota.keys since the create
+            key.add(0, -1, -bytes, expiresAt.toEpochMilli());
+        }
+    }
+
+    /**
+     * Pushes local deltas for every key in one pipeline and refreshes the global view
+     */
+    @Scheduled(fixedDelayString = "${app.quota.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled || usage.isEmpty()) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        String nowBucket = String.valueOf(nowMillis / BUCKET_MILLIS);
+        String minute = String.valueOf(nowMillis / MINUTE_MILLIS);
+
+        List<KeyUsage> keys = new ArrayList<>(usage.values());
+        List<List<String>> args = new ArrayList<>(keys.size());
+        for (KeyUsage key : keys) {
+            args.add(key.drain(nowBucket, minute));
+        }
+
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (int i = 0; i < keys.size(); i++) {
+                        // Pipelined script calls are sent as EVAL, so NOSCRIPT cannot occur here
+                        operations.execute(flushScript, List.of(KEY_PREFIX + keys.get(i).name), args.get(i).toArray());
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.debug("Quota flush failed, keeping deltas for the next attempt: {}", e.getMessage());
+            keys.forEach(KeyUsage::restore);
+            return;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof List<?> totals && totals.size() == 3) {
+                keys.get(i).settle(Long.parseLong(minute), toLong(totals.get(0)), toLong(totals.get(1)), toLong(totals.get(2)));
+            } else {
+                keys.get(i).restore();
+            }
+        }
+    }
+
+    @Override
+    public List<RedisScript<?>> getScripts() {
+        return List.of(flushScript);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(String.valueOf(value));
+    }
+
+    private static long localAllowance(long limit, double overshoot) {
+        return Math.max(1, (long) Math.floor(limit * overshoot));
+    }
+
+    private static Map<String, String> parseKeys(String keys) {
+        Map<String, String> byHash = new HashMap<>();
+        for (String entry : keys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            String name = separator > 0 ? entry.substring(0, separator).trim() : "";
+            String key = separator > 0 ? entry.substring(separator + 1).trim() : "";
+            if (!KEY_NAME.matcher(name).matches() || key.length() < 16) {
+                throw new IllegalArgumentException("app.quota.keys entries must be name:key with a [A-Za-z0-9_-]{1,32} name " +
+                    "and a key of at least 16 characters");
+            }
+            byHash.put(hash(key), name);
+        }
+        return byHash;
+    }
+
+    private static String hash(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Usage of one key as seen by this node: the last global totals plus what this node admitted
+     * since, which is split into deltas being flushed and deltas not yet flushed
+     */
+    private final class KeyUsage {
+
+        private final String name;
+
+        // Admitted here but not yet in the global totals; admission reserves against these with CAS
+        private final AtomicLong unsettledCreates = new AtomicLong();
+        private final AtomicLong unsettledLive = new AtomicLong();
+        private final AtomicLong unsettledBytes = new AtomicLong();
+
+        private final LongAdder pendingCreates = new LongAdder();
+        // Expiry bucket -> {live, bytes}, so the flush can file deltas under the right bucket
+        private final ConcurrentHashMap<Long, LongAdder[]> pendingBuckets = new ConcurrentHashMap<>();
+
+        private long flushingCreates;
+        private long flushingLive;
+        private long flushingBytes;
+        private Map<Long, long[]> flushingBuckets = Map.of();
+
+        private volatile long globalMinute;
+        private volatile long globalCreates;
+        private volatile long globalLive;
+        private volatile long globalBytes;
+
+        private final Map<Verdict, Counter> rejected = new EnumMap<>(Verdict.class);
+
+        KeyUsage(String name, MeterRegistry meterRegistry) {
+            this.name = name;
+            Gauge.builder("quota.usage", this, KeyUsage::creates)
+                .description("Per-key quota usage as seen by this instance")
+                .tag("key", name).tag("resource", "creates_per_minute")
+                .register(meterRegistry);
+            Gauge.builder("quota.usage", this, KeyUsage::bytes)
+                .description("Per-key quota usage as seen by this instance")
+                .tag("key", name).tag("resource", "stored_bytes")
+                .register(meterRegistry);
+            Gauge.builder("quota.usage", this, KeyUsage::live)
+                .description("Per-key quota usage as seen by this instance")
+                .tag("key", name).tag("resource", "live_secrets")
+                .register(meterRegistry);
+            for (Verdict verdict : Verdict.values()) {
+                if (verdict != Verdict.OK) {
+                    rejected.put(verdict, Counter.builder("quota.rejected")
+                        .description("Creates rejected by per-key quotas")
+                        .tag("key", name)
+                        .tag("resource", verdict.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+                }
+            }
+        }
+
+        Verdict admit(long bytes, long expiresAtMillis) {
+            if (!reserve(unsettledCreates, 1, localCreates, createsPerMinute - currentGlobalCreates())) {
+                return Verdict.CREATES;
+            }
+            if (!reserve(unsettledBytes, bytes, localBytes, maxStoredBytes - globalBytes)) {
+                unsettledCreates.addAndGet(-1);
+                return Verdict.BYTES;
+            }
+            if (!reserve(unsettledLive, 1, localLive, maxLiveSecrets - globalLive)) {
+                unsettledCreates.addAndGet(-1);
+                unsettledBytes.addAndGet(-bytes);
+                return Verdict.LIVE;
+            }
+            pendingCreates.increment();
+            addToBucket(1, bytes, expiresAtMillis);
+            return Verdict.OK;
+        }
+
+        Verdict fits(long bytes) {
+            if (bytes > maxStoredBytes - globalBytes - Math.max(0, unsettledBytes.get())) {
+                return Verdict.BYTES;
+            }
+            if (globalLive + unsettledLive.get() >= maxLiveSecrets) {
+                return Verdict.LIVE;
+            }
+            return Verdict.OK;
+        }
+
+        /**
+         * Adds {@code amount} unless that would exceed this node's allowance or the global headroom.
+         * With nothing unsettled, one amount may use the whole headroom even past the allowance, so
+         * a create larger than the allowance can still be admitted.
+         */
+        private boolean reserve(AtomicLong unsettled, long amount, long localLimit, long globalHeadroom) {
+            long current;
+            do {
+                current = unsettled.get();
+                long limit = current <= 0 ? globalHeadroom : Math.min(localLimit, globalHeadroom);
+                if (current + amount > limit) {
+                    return false;
+                }
+            } while (!unsettled.compareAndSet(current, current + amount));
+            return true;
+        }
+
+        void add(long creates, long live, long bytes, long expiresAtMillis) {
+            pendingCreates.add(creates);
+            unsettledCreates.addAndGet(creates);
+            if (expiresAtMillis / BUCKET_MILLIS + 1 > System.currentTimeMillis() / BUCKET_MILLIS) {
+                unsettledLive.addAndGet(live);
+                unsettledBytes.addAndGet(bytes);
+                addToBucket(live, bytes, expiresAtMillis);
+            }
+        }
+
+        private void addToBucket(long live, long bytes, long expiresAtMillis) {
+            // Counted until the first bucket boundary after expiry
+            long bucket = expiresAtMillis / BUCKET_MILLIS + 1;
+            LongAdder[] adders = pendingBuckets.computeIfAbsent(bucket, b -> new LongAdder[] {new LongAdder(), new LongAdder()});
+            adders[0].add(live);
+            adders[1].add(bytes);
+        }
+
+        /**
+         * Moves pending deltas to the flushing slot and returns the script arguments
+         */
+        List<String> drain(String nowBucket, String minute) {
+            long now = Long.parseLong(nowBucket);
+            long creates = pendingCreates.sumThenReset();
+            long live = 0;
+            long bytes = 0;
+            Map<Long, long[]> buckets = new HashMap<>();
+            List<String> args = new ArrayList<>();
+            args.add(nowBucket);
+            args.add(minute);
+            args.add(String.valueOf(creates));
+            for (Iterator<Map.Entry<Long, LongAdder[]>> it = pendingBuckets.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Long, LongAdder[]> entry = it.next();
+                long bucketLive = entry.getValue()[0].sumThenReset();
+                long bucketBytes = entry.getValue()[1].sumThenReset();
+                if (entry.getKey() <= now) {
+                    // Already expired and no longer receiving adds: nothing left to count anywhere
+                    it.remove();
+                    unsettledLive.addAndGet(-bucketLive);
+                    unsettledBytes.addAndGet(-bucketBytes);
+                    continue;
+                }
+                if (bucketLive == 0 && bucketBytes == 0) {
+                    continue;
+                }
+                buckets.put(entry.getKey(), new long[] {bucketLive, bucketBytes});
+                live += bucketLive;
+                bytes += bucketBytes;
+                args.add(String.valueOf(entry.getKey()));
+                args.add(String.valueOf(bucketLive));
+                args.add(String.valueOf(bucketBytes));
+            }
+            flushingBuckets = buckets;
+            flushingCreates = creates;
+            flushingLive = live;
+            flushingBytes = bytes;
+            return args;
+        }
+
+        /**
+         * The flush failed: put the deltas back so they are sent next time
+         */
+        void restore() {
+            pendingCreates.add(flushingCreates);
+            for (Map.Entry<Long, long[]> entry : flushingBuckets.entrySet()) {
+                long[] delta = entry.getValue();
+                LongAdder[] adders = pendingBuckets.computeIfAbsent(entry.getKey(), b -> new LongAdder[] {new LongAdder(), new LongAdder()});
+                adders[0].add(delta[0]);
+                adders[1].add(delta[1]);
+            }
+            clearFlushing();
+        }
+
+        void settle(long minute, long creates, long live, long bytes) {
+            // Totals first, then drop the flushed deltas: in between they count twice, never zero times
+            globalMinute = minute;
+            globalCreates = creates;
+            globalLive = Math.max(live, 0);
+            globalBytes = Math.max(bytes, 0);
+            unsettledCreates.addAndGet(-flushingCreates);
+            unsettledLive.addAndGet(-flushingLive);
+            unsettledBytes.addAndGet(-flushingBytes);
+            clearFlushing();
+        }
+
+        private void clearFlushing() {
+            flushingBuckets = Map.of();
+            flushingCreates = 0;
+            flushingLive = 0;
+            flushingBytes = 0;
+        }
+
+        private long currentGlobalCreates() {
+            return globalMinute == System.currentTimeMillis() / MINUTE_MILLIS ? globalCreates : 0;
+        }
+
+        private double creates() {
+            return currentGlobalCreates() + unsettledCreates.get();
+        }
+
+        private double bytes() {
+            return globalBytes + unsettledBytes.get();
+        }
+
+        private double live() {
+            return globalLive + unsettledLive.get();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.OnePassLink.backend.util;
+
+/**
+ * Thrown instead of starting Redis work the caller will no longer wait for
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String operation;
+
+    public DeadlineExceededException(String operation, String reason) {
+        super("Request deadline exceeded before " + operation + " (" + reason + ")", null, false, false);
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
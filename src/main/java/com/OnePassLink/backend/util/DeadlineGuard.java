@@ -0,0 +1,65 @@
+package com.OnePassLink.backend.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refuses Redis work once the current request's deadline has passed. Destructive operations
+ * (get-and-delete) additionally need a minimum remaining budget, so a secret is never deleted
+ * for a caller that is about to give up and would never receive it.
+ * Every refusal is counted in {@code deadline.skipped}, tagged by operation and reason.
+ */
+@Component
+public class DeadlineGuard {
+
+    public static final String EXPIRED = "expired";
+    public static final String INSUFFICIENT_BUDGET = "insufficient_budget";
+
+    private final long minDestructiveBudgetNanos;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Counter> skipped = new ConcurrentHashMap<>();
+
+    public DeadlineGuard(@Value("${app.deadline.min-destructive-budget-ms:50}") long minDestructiveBudgetMs,
+                         MeterRegistry meterRegistry) {
+        this.minDestructiveBudgetNanos = TimeUnit.MILLISECONDS.toNanos(minDestructiveBudgetMs);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @throws DeadlineExceededException if the request deadline has passed
+     */
+    public void check(String operation) {
+        if (RequestDeadline.isExpired()) {
+            throw skip(operation, EXPIRED);
+        }
+    }
+
+    /**
+     * @throws DeadlineExceededException if less than the minimum destructive budget remains
+     */
+    public void checkDestructive(String operation) {
+        long remaining = RequestDeadline.remainingNanos();
+        if (remaining <= 0) {
+            throw skip(operation, EXPIRED);
+        }
+        if (remaining < minDestructiveBudgetNanos) {
+            throw skip(operation, INSUFFICIENT_BUDGET);
+        }
+    }
+
+    private DeadlineExceededException skip(String operation, String reason) {
+        skipped.computeIfAbsent(operation + '|' + reason, key -> Counter.builder("deadline.skipped")
+                .description("Redis work not started because the request deadline had passed or was too close")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry))
+            .increment();
+        return new DeadlineExceededException(operation, reason);
+    }
+}
@@ -1,9 +1,13 @@
 package com.OnePassLink.backend.util;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.regex.Pattern;
 
 @Component
 public class IdGenerator {
@@ -11,13 +15,66 @@ public class IdGenerator {
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
     private static final int ID_LENGTH_BYTES = 16; // 128 bits entropy
 
+    /**
+     * Separates the random part from the node tag; never produced by base64url
+     */
+    public static final char NODE_TAG_SEPARATOR = '.';
+    /**
+     * Prefix of the IDs of the synthetic secrets created by the startup warm-up
+     */
+    public static final String WARMUP_PREFIX = "warmup-";
+    private static final Pattern NODE_TAG = Pattern.compile("[a-z0-9]{1,8}");
+
+    private final String nodeTag;
+    private final String suffix;
+
+    public IdGenerator(
+            @Value("${app.secret.node-affinity.enabled:false}") boolean nodeAffinity,
+            @Value("${app.secret.node-affinity.node-tag:}") String nodeTag) {
+        if (!nodeAffinity) {
+            this.nodeTag = null;
+            this.suffix = "";
+            return;
+        }
+        String tag = nodeTag.isBlank() ? tagFromHostname() : nodeTag.trim();
+        if (!NODE_TAG.matcher(tag).matches()) {
+            throw new IllegalArgumentException("app.secret.node-affinity.node-tag must match " + NODE_TAG.pattern());
+        }
+        this.nodeTag = tag;
+        this.suffix = NODE_TAG_SEPARATOR + tag;
+    }
+
     /**
      * Generates a cryptographically secure, URL-safe random ID with 128 bits of entropy
-     * @return Base64 URL-safe encoded string (22 characters)
+     * @return Base64 URL-safe encoded string (22 characters), followed by {@code .<node-tag>}
+     *         when node affinity is enabled
      */
     public String generateId() {
         byte[] randomBytes = new byte[ID_LENGTH_BYTES];
         SECURE_RANDOM.nextBytes(randomBytes);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes) + suffix;
+    }
+
+    /**
+     * @return this node's tag, or null when node affinity is disabled
+     */
+    public String getNodeTag() {
+        return nodeTag;
+    }
+
+    /**
+     * Stable 4-character tag derived from the hostname (the pod name under Kubernetes)
+     */
+    private static String tagFromHostname() {
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname == null || hostname.isBlank()) {
+            try {
+                hostname = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException("Cannot derive a node tag; set app.secret.node-affinity.node-tag", e);
+            }
+        }
+        String tag = Integer.toString(Math.floorMod(hostname.hashCode(), 36 * 36 * 36 * 36), 36);
+        return "0".repeat(4 - tag.length()) + tag;
     }
 }
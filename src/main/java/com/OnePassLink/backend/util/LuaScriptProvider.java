@@ -0,0 +1,16 @@
+package com.OnePassLink.backend.util;
+
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Implemented by components that run Lua scripts, so they can be preloaded into Redis at startup
+ */
+public interface LuaScriptProvider {
+
+    /**
+     * @return All scripts this component may execute
+     */
+    List<RedisScript<?>> getScripts();
+}
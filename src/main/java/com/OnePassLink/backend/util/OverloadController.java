@@ -0,0 +1,334 @@
+package com.OnePassLink.backend.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Priority-aware admission control in front of the request worker pool.
+ *
+ * At most {@code max-concurrent} requests run at once; the rest wait in bounded per-class queues
+ * and freed slots always go to the highest-priority waiter. Overload is detected CoDel-style from
+ * queueing delay rather than queue length, tracked per class because priority keeps the delay of
+ * higher classes low while lower ones back up: if even the smallest delay a class saw during an
+ * interval is above the target, it has a standing queue and it is shed along with everything below
+ * it (DOCS, then CREATE, then CHECK). Once every admitted class is well under target the shed level
+ * relaxes by one per interval. Consumes are never shed by level, only when their own queue is full
+ * or they wait longer than {@code max-wait-ms}.
+ *
+ * Waiters block the servlet worker thread they arrived on, so all queues together hold at most
+ * {@code server.tomcat.threads.max - max-concurrent - }{@link #SPARE_WORKERS} requests. Past that,
+ * requests would wait in the connector's accept queue, where priority does not apply. When the
+ * combined limit is reached a newcomer takes the place of the newest waiter of a lower class, which is
+ * rejected; with nobody lower to displace, the newcomer is rejected.
+ */
+@Component
+public class OverloadController {
+
+    /**
+     * Request classes in priority order (highest first)
+     */
+    public enum RequestClass {
+        CONSUME, CHECK, CREATE, DOCS
+    }
+
+    private static final RequestClass[] CLASSES = RequestClass.values();
+    // CONSUME is never shed by level
+    private static final int MAX_SHED_LEVEL = CLASSES.length - 1;
+    // Worker threads never taken by waiters, so new requests still reach admission and actuator
+    // probes still get answered while the queues are full
+    static final int SPARE_WORKERS = 8;
+
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final int maxQueued;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoClock;
+
+    private final Object lock = new Object();
+    private final Map<RequestClass, ArrayDeque<Waiter>> queues = new EnumMap<>(RequestClass.class);
+    private int available;
+    private long intervalStart;
+    private final long[] minDelayInInterval = new long[CLASSES.length];
+    private volatile int shedLevel;
+
+    private final Map<RequestClass, Timer> queueDelay = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> shedByLevel = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> shedQueueFull = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> shedTimeout = new EnumMap<>(RequestClass.class);
+
+    @Autowired
+    public OverloadController(
+            MeterRegistry meterRegistry,
+            @Value("${app.overload.enabled:false}") boolean enabled,
+            @Value("${app.overload.max-concurrent:64}") int maxConcurrent,
+            @Value("${app.overload.queue-capacity:256}") int queueCapacity,
+            @Value("${app.overload.target-delay-ms:5}") long targetDelayMs,
+            @Value("${app.overload.interval-ms:100}") long intervalMs,
+            @Value("${app.overload.max-wait-ms:1000}") long maxWaitMs,
+            @Value("${server.tomcat.threads.max:200}") int workerThreads) {
+        this(meterRegistry, enabled, maxConcurrent, queueCapacity, maxQueued(workerThreads, maxConcurrent),
+            targetDelayMs, intervalMs, maxWaitMs, System::nanoTime);
+    }
+
+    /**
+     * @param maxQueued Waiters across all classes; see {@link #maxQueued(int, int)}
+     * @param nanoClock Source of {@link System#nanoTime()}-style timestamps for queueing delay and
+     *                  CoDel intervals; waits for a slot are still bounded by real time
+     */
+    OverloadController(MeterRegistry meterRegistry, boolean enabled, int maxConcurrent, int queueCapacity,
+                       int maxQueued, long targetDelayMs, long intervalMs, long maxWaitMs, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.nanoClock = nanoClock;
+        this.available = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.maxQueued = maxQueued;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetDelayMs);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.intervalStart = nanoClock.getAsLong();
+        Arrays.fill(minDelayInInterval, Long.MAX_VALUE);
+
+        for (RequestClass requestClass : CLASSES) {
+            String tag = requestClass.name().toLowerCase();
+            queues.put(requestClass, new ArrayDeque<>());
+            queueDelay.put(requestClass, Timer.builder("overload.queue.delay")
+                .description("Time spent waiting for admission")
+                .tag("class", tag)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+            shedByLevel.put(requestClass, shedCounter(meterRegistry, tag, "level"));
+            shedQueueFull.put(requestClass, shedCounter(meterRegistry, tag, "queue_full"));
+            shedTimeout.put(requestClass, shedCounter(meterRegistry, tag, "timeout"));
+            Gauge.builder("overload.queue.size", this, controller -> controller.queued(requestClass))
+                .description("Requests waiting for admission")
+                .tag("class", tag)
+                .register(meterRegistry);
+        }
+        Gauge.builder("overload.shed.level", this, controller -> controller.shedLevel)
+            .description("Number of lowest-priority request classes currently being shed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return how many requests may wait at once without taking the worker threads that new
+     * requests need to reach admission
+     */
+    static int maxQueued(int workerThreads, int maxConcurrent) {
+        return Math.max(0, workerThreads - maxConcurrent - SPARE_WORKERS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Waits for an execution slot
+     * @param requestClass Priority class of the request
+     * @return true if admitted (caller must {@link #release()}), false if shed
+     */
+    public boolean acquire(RequestClass requestClass) throws InterruptedException {
+        Waiter waiter;
+        synchronized (lock) {
+            long now = nanoClock.getAsLong();
+            advanceInterval(now);
+            if (isShed(requestClass)) {
+                shedByLevel.get(requestClass).increment();
+                return false;
+            }
+            if (available > 0) {
+                available--;
+                recordDelay(requestClass, 0);
+                return true;
+            }
+            ArrayDeque<Waiter> queue = queues.get(requestClass);
+            if (queue.size() >= queueCapacity || (queuedTotal() >= maxQueued && !displaceLowerThan(requestClass))) {
+                shedQueueFull.get(requestClass).increment();
+                return false;
+            }
+            waiter = new Waiter(requestClass, now);
+            queue.addLast(waiter);
+        }
+
+        boolean signalled;
+        try {
+            signalled = waiter.latch.await(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            abandon(waiter);
+            throw e;
+        }
+        synchronized (lock) {
+            if (!signalled && !waiter.granted && !waiter.rejected) {
+                queues.get(requestClass).remove(waiter);
+                shedTimeout.get(requestClass).increment();
+                recordDelay(requestClass, nanoClock.getAsLong() - waiter.enqueuedAt);
+                return false;
+            }
+            if (waiter.rejected) {
+                return false;
+            }
+            recordDelay(requestClass, nanoClock.getAsLong() - waiter.enqueuedAt);
+            return true;
+        }
+    }
+
+    /**
+     * Hands the freed slot to the highest-priority waiter, or returns it to the pool
+     */
+    public void release() {
+        synchronized (lock) {
+            for (RequestClass requestClass : CLASSES) {
+                Waiter next = queues.get(requestClass).pollFirst();
+                if (next != null) {
+                    next.granted = true;
+                    next.latch.countDown();
+                    return;
+                }
+            }
+            available++;
+        }
+    }
+
+    /**
+     * Gives up a queued slot request, passing the slot on if it was granted in the meantime
+     */
+    private void abandon(Waiter waiter) {
+        boolean granted;
+        synchronized (lock) {
+            granted = waiter.granted;
+            if (!granted) {
+                queues.get(waiter.requestClass).remove(waiter);
+            }
+        }
+        if (granted) {
+            release();
+        }
+    }
+
+    private int queuedTotal() {
+        int total = 0;
+        for (ArrayDeque<Waiter> queue : queues.values()) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    /**
+     * Rejects the newest waiter of the lowest class below {@code requestClass}, if there is one
+     */
+    private boolean displaceLowerThan(RequestClass requestClass) {
+        for (int i = CLASSES.length - 1; i > requestClass.ordinal(); i--) {
+            Waiter displaced = queues.get(CLASSES[i]).pollLast();
+            if (displaced != null) {
+                displaced.rejected = true;
+                displaced.latch.countDown();
+                shedQueueFull.get(CLASSES[i]).increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getShedLevel() {
+        return shedLevel;
+    }
+
+    private int queued(RequestClass requestClass) {
+        synchronized (lock) {
+            return queues.get(requestClass).size();
+        }
+    }
+
+    private boolean isShed(RequestClass requestClass) {
+        return requestClass.ordinal() >= CLASSES.length - shedLevel;
+    }
+
+    private void recordDelay(RequestClass requestClass, long delayNanos) {
+        queueDelay.get(requestClass).record(delayNanos, TimeUnit.NANOSECONDS);
+        int index = requestClass.ordinal();
+        minDelayInInterval[index] = Math.min(minDelayInInterval[index], delayNanos);
+    }
+
+    /**
+     * Closes the CoDel interval: the lowest sheddable class whose minimum delay is above target has
+     * a standing queue, so it and every class below it get shed; if all admitted classes stayed
+     * under half the target (or saw no traffic), one class is let back in
+     */
+    private void advanceInterval(long now) {
+        if (now - intervalStart < intervalNanos) {
+            return;
+        }
+        int congestedLevel = 0;
+        boolean relaxed = true;
+        for (int i = CLASSES.length - 1 - shedLevel; i >= 0; i--) {
+            long minDelay = minDelayInInterval[i];
+            if (minDelay == Long.MAX_VALUE) {
+                continue;
+            }
+            if (minDelay > targetNanos && i > 0 && congestedLevel == 0) {
+                congestedLevel = CLASSES.length - i;
+            }
+            if (minDelay >= targetNanos / 2) {
+                relaxed = false;
+            }
+        }
+        if (congestedLevel > shedLevel) {
+            shedLevel = Math.min(congestedLevel, MAX_SHED_LEVEL);
+            rejectQueued();
+        } else if (relaxed && shedLevel > 0) {
+            shedLevel--;
+        }
+        Arrays.fill(minDelayInInterval, Long.MAX_VALUE);
+        intervalStart = now;
+    }
+
+    private void rejectQueued() {
+        for (RequestClass requestClass : CLASSES) {
+            if (!isShed(requestClass)) {
+                continue;
+            }
+            ArrayDeque<Waiter> queue = queues.get(requestClass);
+            for (Waiter waiter = queue.pollFirst(); waiter != null; waiter = queue.pollFirst()) {
+                waiter.rejected = true;
+                waiter.latch.countDown();
+                shedByLevel.get(requestClass).increment();
+            }
+        }
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String requestClass, String reason) {
+        return Counter.builder("overload.shed")
+            .description("Requests rejected by the overload controller")
+            .tag("class", requestClass)
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    private static final class Waiter {
+        final RequestClass requestClass;
+        final long enqueuedAt;
+        final CountDownLatch latch = new CountDownLatch(1);
+        // Guarded by the controller lock
+        boolean granted;
+        boolean rejected;
+
+        Waiter(RequestClass requestClass, long enqueuedAt) {
+            this.requestClass = requestClass;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
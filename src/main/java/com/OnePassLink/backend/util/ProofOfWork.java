@@ -0,0 +1,416 @@
+package com.OnePassLink.backend.util;
+
+import com.OnePassLink.backend.model.PowChallenge;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashcash-style proof-of-work admission for anonymous secret creation.
+ *
+ * Challenges are stateless: {@code base64url(version | difficulty | expiresAt | nonce) "." base64url(hmac)},
+ * signed with HMAC-SHA256 so the server keeps nothing per issued challenge. A solution is any string
+ * for which SHA-256(challenge ":" solution) starts with {@code difficulty} zero bits. Spent challenges
+ * are remembered by a 64-bit nonce fingerprint in two rotating open-addressing tables, which together
+ * cover a full challenge lifetime. When the current table is full, valid solutions are answered with
+ * {@link Verdict#BUSY} (try again later) rather than accepted unchecked or rejected as replays. The
+ * replay cache is local to the instance, so multi-instance deployments share the HMAC secret but not
+ * the spent set.
+ *
+ * Difficulty starts at {@code min-difficulty}. Each doubling of the create rate over
+ * {@code target-creates-per-second} adds one bit. Redis memory use above {@code memory-pressure-threshold}
+ * adds up to {@code memory-pressure-bits} more. The result is capped at {@code max-difficulty}.
+ * In {@code auto} mode, solutions are only required while either signal is raised, and for
+ * {@code auto-hold-seconds} after it drops.
+ */
+@Component
+public class ProofOfWork {
+
+    private static final Logger log = LoggerFactory.getLogger(ProofOfWork.class);
+
+    public enum Mode {
+        OFF, ON, AUTO
+    }
+
+    public enum Verdict {
+        OK, MISSING, INVALID, EXPIRED, INSUFFICIENT, REPLAYED,
+        /** Valid and unused, but the replay cache has no room to remember it until it rotates */
+        BUSY
+    }
+
+    private static final byte VERSION = 1;
+    private static final int NONCE_BYTES = 16;
+    private static final int PAYLOAD_BYTES = 2 + Long.BYTES + NONCE_BYTES;
+    private static final int MAC_BYTES = 16;
+    private static final int MAX_TOKEN_LENGTH = 128;
+    private static final int MAX_SOLUTION_LENGTH = 64;
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Mode mode;
+    private final long challengeTtlMillis;
+    private final int minDifficulty;
+    private final int maxDifficulty;
+    private final double targetCreatesPerSecond;
+    private final double memoryPressureThreshold;
+    private final int memoryPressureBits;
+    private final long memoryBudgetBytes;
+    private final long autoHoldMillis;
+    private final ThreadLocal<Mac> mac;
+    private final SpentChallenges spentChallenges;
+
+    private final LongAdder creates = new LongAdder();
+    private long lastAdjustNanos = System.nanoTime();
+    private volatile double createRate;
+    private volatile double memoryUsage;
+    private volatile int difficulty;
+    private volatile long requiredUntilMillis;
+
+    private final Map<Verdict, Counter> verifications = new EnumMap<>(Verdict.class);
+
+    public ProofOfWork(
+            RedisTemplate<String, String> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.security.pow.mode:off}") String mode,
+            @Value("${app.security.pow.hmac-secret:}") String hmacSecret,
+            @Value("${app.security.pow.challenge-ttl-seconds:120}") long challengeTtlSeconds,
+            @Value("${app.security.pow.min-difficulty:16}") int minDifficulty,
+            @Value("${app.security.pow.max-difficulty:26}") int maxDifficulty,
+            @Value("${app.security.pow.target-creates-per-second:20}") double targetCreatesPerSecond,
+            @Value("${app.security.pow.memory-pressure-threshold:0.5}") double memoryPressureThreshold,
+            @Value("${app.security.pow.memory-pressure-bits:6}") int memoryPressureBits,
+            @Value("${app.security.pow.memory-budget-bytes:0}") long memoryBudgetBytes,
+            @Value("${app.security.pow.auto-hold-seconds:300}") long autoHoldSeconds,
+            @Value("${app.security.pow.replay-cache-capacity:100000}") int replayCacheCapacity) {
+        this.redisTemplate = redisTemplate;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.challengeTtlMillis = TimeUnit.SECONDS.toMillis(challengeTtlSeconds);
+        this.minDifficulty = minDifficulty;
+        this.maxDifficulty = Math.min(maxDifficulty, 255);
+        this.targetCreatesPerSecond = targetCreatesPerSecond;
+        this.memoryPressureThreshold = memoryPressureThreshold;
+        this.memoryPressureBits = memoryPressureBits;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.autoHoldMillis = TimeUnit.SECONDS.toMillis(autoHoldSeconds);
+        this.difficulty = minDifficulty;
+        this.spentChallenges = new SpentChallenges(replayCacheCapacity, challengeTtlMillis);
+
+        byte[] key = hmacSecret.isBlank() ? randomKey() : hmacSecret.getBytes(StandardCharsets.UTF_8);
+        SecretKeySpec keySpec = new SecretKeySpec(key, "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance("HmacSHA256");
+                instance.init(keySpec);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+
+        for (Verdict verdict : Verdict.values()) {
+            verifications.put(verdict, Counter.builder("pow.verifications")
+                .description("Proof-of-work verification outcomes")
+                .tag("result", verdict.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        }
+        Gauge.builder("pow.difficulty", this, pow -> pow.difficulty)
+            .description("Leading zero bits required for newly issued challenges")
+            .register(meterRegistry);
+        Gauge.builder("pow.required", this, pow -> pow.isRequired() ? 1 : 0)
+            .description("Whether creates currently need a proof-of-work solution")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    /**
+     * @return true if creates must currently carry a valid solution
+     */
+    public boolean isRequired() {
+        return mode == Mode.ON || (mode == Mode.AUTO && System.currentTimeMillis() < requiredUntilMillis);
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Counts a create attempt towards the rate that drives difficulty
+     */
+    public void recordCreate() {
+        creates.increment();
+    }
+
+    /**
+     * Issues a new signed challenge at the current difficulty
+     */
+    public PowChallenge issueChallenge() {
+        int currentDifficulty = difficulty;
+        Instant expiresAt = Instant.ofEpochMilli(System.currentTimeMillis() + challengeTtlMillis);
+        byte[] payload = ByteBuffer.allocate(PAYLOAD_BYTES)
+            .put(VERSION)
+            .put((byte) currentDifficulty)
+            .putLong(expiresAt.toEpochMilli())
+            .put(randomBytes(NONCE_BYTES))
+            .array();
+        String token = ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+        return new PowChallenge(token, currentDifficulty, expiresAt);
+    }
+
+    /**
+     * Verifies a solution and marks its challenge as spent
+     * @param challenge Token previously returned by {@link #issueChallenge()}
+     * @param solution Client-chosen string satisfying the challenge difficulty
+     * @return OK if the create may proceed, otherwise the reason it may not
+     */
+    public Verdict verify(String challenge, String solution) {
+        Verdict verdict = check(challenge, solution);
+        verifications.get(verdict).increment();
+        return verdict;
+    }
+
+    private Verdict check(String challenge, String solution) {
+        if (challenge == null || solution == null || challenge.isEmpty() || solution.isEmpty()) {
+            return Verdict.MISSING;
+        }
+        if (challenge.length() > MAX_TOKEN_LENGTH || solution.length() > MAX_SOLUTION_LENGTH) {
+            return Verdict.INVALID;
+        }
+        int dot = challenge.indexOf('.');
+        if (dot < 0) {
+            return Verdict.INVALID;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(challenge.substring(0, dot));
+            signature = DECODER.decode(challenge.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Verdict.INVALID;
+        }
+        if (payload.length != PAYLOAD_BYTES || !MessageDigest.isEqual(sign(payload), signature)) {
+            return Verdict.INVALID;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (buffer.get() != VERSION) {
+            return Verdict.INVALID;
+        }
+        int required = buffer.get() & 0xff;
+        long expiresAt = buffer.getLong();
+        long fingerprint = buffer.getLong();
+        long now = System.currentTimeMillis();
+        if (now > expiresAt) {
+            return Verdict.EXPIRED;
+        }
+        if (leadingZeroBits(sha256(challenge + ":" + solution)) < required) {
+            return Verdict.INSUFFICIENT;
+        }
+        return spentChallenges.markSpent(fingerprint, now);
+    }
+
+    /**
+     * @return seconds until the replay cache has room again, for answering {@link Verdict#BUSY}
+     */
+    public long getRetryAfterSeconds() {
+        return spentChallenges.secondsUntilRotation(System.currentTimeMillis());
+    }
+
+    /**
+     * Recomputes difficulty from the smoothed create rate and Redis memory headroom
+     */
+    @Scheduled(fixedDelayString = "${app.security.pow.adjust-interval-ms:1000}")
+    public void adjustDifficulty() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        long now = System.nanoTime();
+        double seconds = Math.max((now - lastAdjustNanos) / 1e9, 1e-3);
+        lastAdjustNanos = now;
+        createRate = RATE_SMOOTHING * (creates.sumThenReset() / seconds) + (1 - RATE_SMOOTHING) * createRate;
+        memoryUsage = readMemoryUsage();
+
+        int rateBits = createRate > targetCreatesPerSecond
+            ? (int) Math.ceil(Math.log(createRate / targetCreatesPerSecond) / Math.log(2))
+            : 0;
+        int memoryBits = memoryUsage > memoryPressureThreshold
+            ? (int) Math.round((memoryUsage - memoryPressureThreshold) / (1 - memoryPressureThreshold) * memoryPressureBits)
+            : 0;
+        difficulty = Math.max(minDifficulty, Math.min(maxDifficulty, minDifficulty + rateBits + memoryBits));
+        if (rateBits + memoryBits > 0) {
+            requiredUntilMillis = System.currentTimeMillis() + autoHoldMillis;
+        }
+    }
+
+    /**
+     * @return used_memory as a fraction of maxmemory (or the configured budget), 0 if unbounded
+     */
+    private double readMemoryUsage() {
+        try {
+            Properties info = redisTemplate.execute(
+                (RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+            if (info == null) {
+                return memoryUsage;
+            }
+            long used = Long.parseLong(info.getProperty("used_memory", "0"));
+            long budget = Long.parseLong(info.getProperty("maxmemory", "0"));
+            if (budget <= 0) {
+                budget = memoryBudgetBytes;
+            }
+            return budget > 0 ? Math.min(1.0, (double) used / budget) : 0;
+        } catch (RuntimeException e) {
+            log.debug("Could not read Redis memory usage: {}", e.getMessage());
+            return memoryUsage;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        return Arrays.copyOf(mac.get().doFinal(payload), MAC_BYTES);
+    }
+
+    private static byte[] sha256(String input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Counts leading zero bits, always looking at every byte so timing does not depend on the input
+     */
+    static int leadingZeroBits(byte[] hash) {
+        int zeros = 0;
+        int done = 0;
+        for (byte b : hash) {
+            int value = b & 0xff;
+            int bits = Integer.numberOfLeadingZeros(value) - 24;
+            zeros += bits & ~(-done);
+            done |= value == 0 ? 0 : 1;
+        }
+        return zeros;
+    }
+
+    private static byte[] randomKey() {
+        log.warn("No app.security.pow.hmac-secret configured, using a per-instance random key");
+        return randomBytes(32);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        SECURE_RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Exact set of spent challenge fingerprints in two open-addressing generations.
+     * The current generation is rotated out every challenge lifetime, so any fingerprint is
+     * kept at least as long as its challenge could still be presented. When a generation is
+     * full new solutions are refused as {@link Verdict#BUSY} rather than risking an unchecked replay;
+     * rotating early is not an option, since it would forget fingerprints still within their lifetime.
+     */
+    private static final class SpentChallenges {
+        private final int maxEntries;
+        private final long rotateMillis;
+        private final int mask;
+        private long[] current;
+        private long[] previous;
+        private int currentSize;
+        private long generationStart = System.currentTimeMillis();
+
+        SpentChallenges(int maxEntries, long rotateMillis) {
+            int slots = Integer.highestOneBit(Math.max(maxEntries, 1) * 2 - 1) << 1;
+            this.maxEntries = maxEntries;
+            this.rotateMillis = rotateMillis;
+            this.mask = slots - 1;
+            this.current = new long[slots];
+            this.previous = new long[slots];
+        }
+
+        synchronized Verdict markSpent(long fingerprint, long now) {
+            long key = fingerprint == 0 ? 1 : fingerprint;
+            rotate(now);
+            if (contains(previous, key)) {
+                return Verdict.REPLAYED;
+            }
+            int slot = slot(key);
+            while (current[slot] != 0) {
+                if (current[slot] == key) {
+                    return Verdict.REPLAYED;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (currentSize >= maxEntries) {
+                return Verdict.BUSY;
+            }
+            current[slot] = key;
+            currentSize++;
+            return Verdict.OK;
+        }
+
+        synchronized long secondsUntilRotation(long now) {
+            long millis = Math.max(0, generationStart + rotateMillis - now);
+            return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis + 999));
+        }
+
+        private void rotate(long now) {
+            long age = now - generationStart;
+            if (age < rotateMillis) {
+                return;
+            }
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0);
+            if (age >= 2 * rotateMillis) {
+                Arrays.fill(current, 0);
+            }
+            previous = current;
+            current = recycled;
+            currentSize = 0;
+            generationStart = now;
+        }
+
+        private boolean contains(long[] table, long key) {
+            for (int slot = slot(key); table[slot] != 0; slot = (slot + 1) & mask) {
+                if (table[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int slot(long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed >>> 32) & mask;
+        }
+    }
+}
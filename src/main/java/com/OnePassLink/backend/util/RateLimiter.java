@@ -1,40 +1,43 @@
 package com.OnePassLink.backend.util;
 
+import com.OnePassLink.backend.profiling.RateLimitCheckEvent;
+import com.OnePassLink.backend.profiling.SecretStageEvent;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 
 @Component
-public class RateLimiter {
+public class RateLimiter implements LuaScriptProvider {
 
     private final RedisTemplate<String, String> redisTemplate;
     private final DefaultRedisScript<Long> rateLimitScript;
+    private final DeadlineGuard deadlineGuard;
 
     private static final String RATE_LIMIT_PREFIX = "rate_limit:";
 
-    public RateLimiter(RedisTemplate<String, String> redisTemplate) {
+    public RateLimiter(RedisTemplate<String, String> redisTemplate, DeadlineGuard deadlineGuard) {
         this.redisTemplate = redisTemplate;
+        this.deadlineGuard = deadlineGuard;
 
-        // Lua script for atomic rate limiting with sliding window
+        // Lua script for atomic fixed-window rate limiting; ARGV[3] is the request cost
         this.rateLimitScript = new DefaultRedisScript<>();
         this.rateLimitScript.setScriptText(
             "local key = KEYS[1] " +
             "local limit = tonumber(ARGV[1]) " +
             "local window = tonumber(ARGV[2]) " +
-            "local current = redis.call('GET', key) " +
-            "if current == false then " +
-            "  redis.call('SET', key, 1) " +
+            "local cost = tonumber(ARGV[3]) " +
+            "local current = tonumber(redis.call('GET', key) or '0') " +
+            "if current + cost > limit then " +
+            "  return -1 " +
+            "end " +
+            "local value = redis.call('INCRBY', key, cost) " +
+            "if value == cost then " +
             "  redis.call('EXPIRE', key, window) " +
-            "  return 1 " +
             "end " +
-            "current = tonumber(current) " +
-            "if current < limit then " +
-            "  return redis.call('INCR', key) " +
-            "else " +
-            "  return -1 " +
-            "end"
+            "return value"
         );
         this.rateLimitScript.setResultType(Long.class);
     }
@@ -47,14 +50,40 @@ public class RateLimiter {
      * @return true if allowed, false if rate limited
      */
     public boolean isAllowed(String clientIp, int limit, int windowSeconds) {
+        return isAllowed(clientIp, limit, windowSeconds, 1);
+    }
+
+    /**
+     * Check if a request consuming several units of quota is allowed, e.g. one unit per secret ID
+     * @param clientIp The client IP address
+     * @param limit Maximum units allowed per window
+     * @param windowSeconds Time window in seconds
+     * @param cost Units this request consumes
+     * @return true if allowed (and charged), false if rate limited (nothing charged)
+     */
+    public boolean isAllowed(String clientIp, int limit, int windowSeconds, int cost) {
+        deadlineGuard.check("rate_limit");
         String key = RATE_LIMIT_PREFIX + clientIp;
-        Long result = redisTemplate.execute(rateLimitScript,
-            List.of(key),
-            String.valueOf(limit),
-            String.valueOf(windowSeconds)
-        );
+        RateLimitCheckEvent event = new RateLimitCheckEvent();
+        event.operation = "rateLimit";
+        event.begin();
+        try {
+            Long result = redisTemplate.execute(rateLimitScript,
+                List.of(key),
+                String.valueOf(limit),
+                String.valueOf(windowSeconds),
+                String.valueOf(cost)
+            );
 
-        return result != null && result != -1;
+            boolean allowed = result != null && result != -1;
+            event.outcome = allowed ? "allowed" : "limited";
+            return allowed;
+        } catch (RuntimeException e) {
+            event.outcome = SecretStageEvent.ERROR;
+            throw e;
+        } finally {
+            event.commit();
+        }
     }
 
     /**
@@ -77,4 +106,9 @@ public class RateLimiter {
         String key = RATE_LIMIT_PREFIX + clientIp;
         return redisTemplate.getExpire(key);
     }
+
+    @Override
+    public List<RedisScript<?>> getScripts() {
+        return List.of(rateLimitScript);
+    }
 }
@@ -0,0 +1,50 @@
+package com.OnePassLink.backend.util;
+
+/**
+ * Deadline of the request being handled on the current thread, as a {@link System#nanoTime()} instant.
+ * Set by {@link com.OnePassLink.backend.api.DeadlineFilter} around each API request and read by
+ * {@link DeadlineGuard} before Redis work and by the Lettuce timeout source for per-command timeouts.
+ */
+public final class RequestDeadline {
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private static final ThreadLocal<long[]> DEADLINE = ThreadLocal.withInitial(() -> new long[] {UNSET});
+
+    private RequestDeadline() {
+    }
+
+    public static void set(long deadlineNanos) {
+        DEADLINE.get()[0] = deadlineNanos;
+    }
+
+    public static void clear() {
+        DEADLINE.get()[0] = UNSET;
+    }
+
+    /**
+     * Moves the deadline, if one is set, {@code nanos} later
+     */
+    public static void extend(long nanos) {
+        long[] deadline = DEADLINE.get();
+        if (deadline[0] != UNSET) {
+            deadline[0] += nanos;
+        }
+    }
+
+    public static boolean isSet() {
+        return DEADLINE.get()[0] != UNSET;
+    }
+
+    /**
+     * @return nanoseconds left before the deadline (negative once passed), or {@link Long#MAX_VALUE} if none is set
+     */
+    public static long remainingNanos() {
+        long deadline = DEADLINE.get()[0];
+        return deadline == UNSET ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    public static boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+}
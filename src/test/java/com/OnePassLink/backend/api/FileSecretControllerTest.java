@@ -0,0 +1,196 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.model.FileUpload;
+import com.OnePassLink.backend.model.FileUploadRequest;
+import com.OnePassLink.backend.repository.FileSecretStore.Completion;
+import com.OnePassLink.backend.repository.FileSecretStore.Session;
+import com.OnePassLink.backend.service.FileSecretService;
+import com.OnePassLink.backend.service.FileSecretService.ChunkResult;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.OnePassLink.backend.util.ProofOfWork;
+import com.OnePassLink.backend.util.RequestDeadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * When {@link FileSecretController} charges per-key quotas, with the service layer mocked.
+ */
+class FileSecretControllerTest {
+
+    private static final String API_KEY = "acme-key-0123456789";
+
+    private FileSecretService fileSecretService;
+    private ApiKeyQuotas apiKeyQuotas;
+    private FileSecretController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        fileSecretService = mock(FileSecretService.class);
+        apiKeyQuotas = mock(ApiKeyQuotas.class);
+        when(fileSecretService.isEnabled()).thenReturn(true);
+        when(fileSecretService.getMaxSizeBytes()).thenReturn(1L << 20);
+        when(apiKeyQuotas.isEnabled()).thenReturn(true);
+        when(apiKeyQuotas.identify(API_KEY)).thenReturn("acme");
+        controller = new FileSecretController(fileSecretService, apiKeyQuotas,
+            new CreateAdmission(mock(ProofOfWork.class), apiKeyQuotas));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void clearDeadline() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void startingAnUploadChargesNothing() throws Exception {
+        when(fileSecretService.startUpload(any(FileUploadRequest.class), eq("acme")))
+            .thenReturn(new FileUpload("up", 100, 4096, 1, List.of()));
+        when(apiKeyQuotas.check("acme", 100)).thenReturn(ApiKeyQuotas.Verdict.OK);
+
+        mockMvc.perform(post("/api/files/uploads").header("X-API-Key", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"sizeBytes\":100,\"expiresInSec\":3600}"))
+            .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/files/uploads").header("X-API-Key", "unknown-key-0123456789")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"sizeBytes\":100,\"expiresInSec\":3600}"))
+            .andExpect(status().isUnauthorized());
+
+        verify(apiKeyQuotas, never()).tryAcquire(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void startingAnUploadThatCannotFitTheQuotaIsRefusedAtOnce() throws Exception {
+        when(apiKeyQuotas.check("acme", 100)).thenReturn(ApiKeyQuotas.Verdict.BYTES);
+
+        mockMvc.perform(post("/api/files/uploads").header("X-API-Key", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"sizeBytes\":100,\"expiresInSec\":3600}"))
+            .andExpect(status().isTooManyRequests());
+        verify(fileSecretService, never()).startUpload(any(FileUploadRequest.class), anyString());
+    }
+
+    @Test
+    void completingChargesTheKeyAndReturnsTheChargeIfItFails() throws Exception {
+        Session session = new Session(100, 4096, 3600, "acme");
+        when(fileSecretService.findSession("up")).thenReturn(Optional.of(session));
+        when(apiKeyQuotas.tryAcquire(eq("acme"), eq(100L), any())).thenReturn(ApiKeyQuotas.Verdict.OK);
+        when(fileSecretService.completeUpload(eq("up"), eq(session), any()))
+            .thenReturn(Completion.MISSING_CHUNKS, Completion.OK);
+
+        mockMvc.perform(post("/api/files/uploads/up/complete")).andExpect(status().isConflict());
+        verify(apiKeyQuotas).release(eq("acme"), eq(100L), any(Instant.class));
+
+        mockMvc.perform(post("/api/files/uploads/up/complete")).andExpect(status().isCreated());
+        verify(apiKeyQuotas, times(2)).tryAcquire(eq("acme"), eq(100L), any());
+        verify(apiKeyQuotas).release(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void completingOverTheQuotaLeavesTheUploadOpen() throws Exception {
+        Session session = new Session(100, 4096, 3600, "acme");
+        when(fileSecretService.findSession("up")).thenReturn(Optional.of(session));
+        when(apiKeyQuotas.tryAcquire(eq("acme"), eq(100L), any())).thenReturn(ApiKeyQuotas.Verdict.BYTES);
+
+        mockMvc.perform(post("/api/files/uploads/up/complete")).andExpect(status().isTooManyRequests());
+        verify(fileSecretService, never()).completeUpload(anyString(), any(), any());
+    }
+
+    @Test
+    void slowChunkBodyDoesNotUseUpTheDeadline() throws Exception {
+        DeadlineGuard deadlineGuard = new DeadlineGuard(50, new SimpleMeterRegistry());
+        when(fileSecretService.storeChunk(eq("up"), anyInt(), any())).thenAnswer(invocation -> {
+            InputStream body = invocation.getArgument(2);
+            assertEquals(4, body.readNBytes(5).length);
+            deadlineGuard.check("file_upload"); // as the store does before the Redis write
+            return ChunkResult.STORED;
+        });
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getInputStream()).thenReturn(new SlowBody(4, 60));
+
+        // 240ms of body against a 100ms budget
+        RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(204, controller.uploadChunk("up", 0, request).getStatusCode().value());
+    }
+
+    /**
+     * A body that delivers one byte every {@code delayMillis}, like a slow uploader
+     */
+    private static final class SlowBody extends ServletInputStream {
+
+        private final long delayMillis;
+        private int remaining;
+
+        SlowBody(int bytes, long delayMillis) {
+            this.remaining = bytes;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public int read() {
+            if (remaining == 0) {
+                return -1;
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            remaining--;
+            return 'x';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            // One byte per call, so every read waits on the client
+            int value = read();
+            if (value < 0) {
+                return len == 0 ? 0 : -1;
+            }
+            b[off] = (byte) value;
+            return 1;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return remaining == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.OnePassLink.backend.api;
+
+import com.OnePassLink.backend.util.OverloadController;
+import com.OnePassLink.backend.util.OverloadController.RequestClass;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Classification and per-class latency recording of {@link LoadSheddingFilter}, on a mock clock.
+ */
+class LoadSheddingFilterTest {
+
+    private final MockClock clock = new MockClock();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+    private final OverloadController controller = mock(OverloadController.class);
+    private final LoadSheddingFilter filter = new LoadSheddingFilter(controller, registry);
+
+    @Test
+    void recordsServedLatencyUnderTheRequestClass() throws Exception {
+        when(controller.isEnabled()).thenReturn(true);
+        when(controller.acquire(RequestClass.CONSUME)).thenReturn(true);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/secrets/abc"), new MockHttpServletResponse(),
+            new MockFilterChain() {
+                @Override
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                    clock.add(Duration.ofMillis(7));
+                }
+            });
+
+        verify(controller).release();
+        Timer served = timer("consume", "served");
+        assertEquals(1, served.count());
+        assertEquals(7, served.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, timer("create", "served").count());
+    }
+
+    @Test
+    void shedRequestsAreRecordedSeparately() throws Exception {
+        when(controller.isEnabled()).thenReturn(true);
+        when(controller.acquire(RequestClass.CREATE)).thenReturn(false);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/secrets"), response, new MockFilterChain());
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1, timer("create", "shed").count());
+        assertEquals(0, timer("create", "served").count());
+    }
+
+    @Test
+    void classifiesByPathAndMethod() {
+        assertEquals(RequestClass.CONSUME, LoadSheddingFilter.classify(new MockHttpServletRequest("POST", "/api/secrets/consume")));
+        assertEquals(RequestClass.CHECK, LoadSheddingFilter.classify(new MockHttpServletRequest("GET", "/api/secrets/abc/metadata")));
+        assertEquals(RequestClass.CREATE, LoadSheddingFilter.classify(new MockHttpServletRequest("PUT", "/api/files/uploads/abc/chunks/0")));
+        assertEquals(RequestClass.DOCS, LoadSheddingFilter.classify(new MockHttpServletRequest("GET", "/v3/api-docs")));
+    }
+
+    private Timer timer(String requestClass, String outcome) {
+        return registry.get("overload.request.duration").tags("class", requestClass, "outcome", outcome).timer();
+    }
+}
@@ -0,0 +1,90 @@
+package com.OnePassLink.backend.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OpenApiSpecControllerTest {
+
+    private static final byte[] SPEC = "{\"openapi\":\"3.0.1\",\"paths\":{}}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void servesSpecWithEtagAndRevalidates() throws Exception {
+        OpenApiSpecController controller = controller(true);
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        ResponseEntity<byte[]> ok = controller.spec(null, request(null, first));
+        assertEquals(200, ok.getStatusCode().value());
+        assertArrayEquals(SPEC, ok.getBody());
+        assertEquals("max-age=3600, public", ok.getHeaders().getCacheControl());
+        String etag = first.getHeader("ETag");
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        ResponseEntity<byte[]> notModified = controller.spec(null, request(etag, second));
+        assertEquals(304, notModified.getStatusCode().value());
+        assertNull(notModified.getBody());
+    }
+
+    @Test
+    void gzipClientsGetPrecompressedBytesUnderTheirOwnEtag() throws Exception {
+        OpenApiSpecController controller = controller(false); // .gz is produced at startup when absent
+
+        MockHttpServletResponse plain = new MockHttpServletResponse();
+        controller.spec(null, request(null, plain));
+        MockHttpServletResponse gzipped = new MockHttpServletResponse();
+        ResponseEntity<byte[]> response = controller.spec("gzip, br", request(null, gzipped));
+
+        assertEquals("gzip", response.getHeaders().getFirst("Content-Encoding"));
+        assertNotEquals(plain.getHeader("ETag"), gzipped.getHeader("ETag"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertArrayEquals(SPEC, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void missingSpecIsNotFound() throws Exception {
+        OpenApiSpecController controller = new OpenApiSpecController(new DefaultResourceLoader(),
+            "file:" + dir.resolve("absent.json"), Duration.ofHours(1));
+
+        assertEquals(404, controller.spec(null, request(null, new MockHttpServletResponse())).getStatusCode().value());
+    }
+
+    private OpenApiSpecController controller(boolean withGzip) throws Exception {
+        Path spec = dir.resolve("openapi.json");
+        Files.write(spec, SPEC);
+        if (withGzip) {
+            try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("openapi.json.gz")))) {
+                out.write(SPEC);
+            }
+        }
+        return new OpenApiSpecController(new DefaultResourceLoader(), "file:" + spec, Duration.ofHours(1));
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/api-docs");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
@@ -1,4 +1,147 @@
 package com.OnePassLink.backend.api;
 
-public class SecretControllerTest {
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.codec.SecretJsonHttpMessageConverter;
+import com.OnePassLink.backend.model.BulkConsumeResponse;
+import com.OnePassLink.backend.model.SecretMetadata;
+import com.OnePassLink.backend.service.SecretService;
+import com.OnePassLink.backend.service.StartupWarmup;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.ProofOfWork;
+import com.OnePassLink.backend.util.RateLimiter;
+import com.OnePassLink.backend.util.RequestDeadline;
+import io.lettuce.core.RedisCommandTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Request mapping and error responses of {@link SecretController}, with the service layer mocked.
+ */
+class SecretControllerTest {
+
+    private SecretService secretService;
+    private RateLimiter rateLimiter;
+    private ProofOfWork proofOfWork;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        secretService = mock(SecretService.class);
+        rateLimiter = mock(RateLimiter.class);
+        proofOfWork = mock(ProofOfWork.class);
+        ApiKeyQuotas apiKeyQuotas = mock(ApiKeyQuotas.class);
+        SecretController controller = new SecretController(secretService, rateLimiter, proofOfWork, apiKeyQuotas,
+            mock(StartupWarmup.class), new CreateAdmission(proofOfWork, apiKeyQuotas));
+        ReflectionTestUtils.setField(controller, "bulkConsumeMaxIds", 10);
+        ReflectionTestUtils.setField(controller, "rateLimitEnabled", true);
+        ReflectionTestUtils.setField(controller, "rateLimitPerMinute", 5);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .setMessageConverters(new SecretJsonHttpMessageConverter(new SecretJsonCodec(), objectMapper),
+                new MappingJackson2HttpMessageConverter(objectMapper))
+            .build();
+    }
+
+    @AfterEach
+    void clearDeadline() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void malformedJsonIsABadRequest() throws Exception {
+        mockMvc.perform(post("/api/secrets").contentType(MediaType.APPLICATION_JSON).content("{\"ciphertext\":"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("INVALID_JSON"))
+            .andExpect(jsonPath("$.status").value(400));
+    }
+
+    @Test
+    void fullReplayCacheAsksToRetryInsteadOfRejectingTheSolution() throws Exception {
+        when(proofOfWork.isEnabled()).thenReturn(true);
+        when(proofOfWork.isRequired()).thenReturn(true);
+        when(proofOfWork.verify("challenge", "solution")).thenReturn(ProofOfWork.Verdict.BUSY);
+        when(proofOfWork.getRetryAfterSeconds()).thenReturn(42L);
+
+        mockMvc.perform(post("/api/secrets").contentType(MediaType.APPLICATION_JSON)
+                .header("X-PoW-Challenge", "challenge").header("X-PoW-Solution", "solution")
+                .content("{\"ciphertext\":\"abc\",\"expiresInSec\":3600}"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "42"));
+        verifyNoInteractions(secretService);
+    }
+
+    @Test
+    void metadataIsReturnedWithoutConsuming() throws Exception {
+        when(secretService.getSecretMetadata("live")).thenReturn(new SecretMetadata(true, 60_000, 1));
+        when(secretService.getSecretMetadata("gone")).thenReturn(new SecretMetadata(false, 0, 0));
+
+        mockMvc.perform(get("/api/secrets/live/metadata"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.exists").value(true))
+            .andExpect(jsonPath("$.expiresInMs").value(60_000))
+            .andExpect(jsonPath("$.viewsRemaining").value(1));
+        mockMvc.perform(get("/api/secrets/gone/metadata"))
+            .andExpect(status().isGone());
+    }
+
+    @Test
+    void bulkConsumeOverThePerMinuteLimitIsRejectedWithABody() throws Exception {
+        mockMvc.perform(post("/api/secrets/consume").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[\"a\",\"b\",\"c\",\"d\",\"e\",\"f\"]}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("TOO_MANY_IDS"))
+            .andExpect(jsonPath("$.message").value("At most 5 IDs per call"));
+        verifyNoInteractions(rateLimiter, secretService);
+    }
+
+    @Test
+    void bulkConsumeChargesEachIdAgainstThePerMinuteLimit() throws Exception {
+        when(rateLimiter.isAllowed("127.0.0.1", 5, 60, 3)).thenReturn(true, false);
+        when(secretService.consumeSecrets(List.of("a", "b", "c"))).thenReturn(new BulkConsumeResponse(List.of()));
+
+        mockMvc.perform(post("/api/secrets/consume").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[\"a\",\"b\",\"c\"]}"))
+            .andExpect(status().isOk());
+        mockMvc.perform(post("/api/secrets/consume").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[\"a\",\"b\",\"c\"]}"))
+            .andExpect(status().isTooManyRequests());
+        verify(secretService).consumeSecrets(List.of("a", "b", "c"));
+    }
+
+    @Test
+    void onlyRedisTimeoutsAfterTheDeadlineBecomeGatewayTimeouts() throws Exception {
+        when(secretService.getSecretMetadata("slow")).thenThrow(
+            new QueryTimeoutException("Redis command timed out", new RedisCommandTimeoutException("Command timed out")));
+        when(secretService.getSecretMetadata("broken")).thenThrow(new IllegalStateException("bug"));
+        // MockMvc handles the request on this thread
+        RequestDeadline.set(System.nanoTime() - 1);
+
+        mockMvc.perform(get("/api/secrets/slow/metadata"))
+            .andExpect(status().isGatewayTimeout())
+            .andExpect(jsonPath("$.error").value("DEADLINE_EXCEEDED"));
+        mockMvc.perform(get("/api/secrets/broken/metadata"))
+            .andExpect(status().isInternalServerError())
+            .andExpect(jsonPath("$.error").value("INTERNAL_ERROR"));
+    }
 }
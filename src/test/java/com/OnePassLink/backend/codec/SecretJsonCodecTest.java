@@ -0,0 +1,133 @@
+package com.OnePassLink.backend.codec;
+
+import com.OnePassLink.backend.model.ErrorResponse;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretMetadata;
+import com.OnePassLink.backend.model.SecretRequest;
+import com.OnePassLink.backend.model.SecretResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link SecretJsonCodec} against the application's Jackson setup on the same DTOs.
+ */
+class SecretJsonCodecTest {
+
+    // Same settings as spring.jackson in application.yml
+    private static final ObjectMapper JACKSON = Jackson2ObjectMapperBuilder.json()
+        .serializationInclusion(JsonInclude.Include.NON_NULL)
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    private static final Instant CREATED = Instant.parse("2025-01-02T03:04:05.123456789Z");
+
+    private final SecretJsonCodec codec = new SecretJsonCodec();
+    private final SecretJsonHttpMessageConverter converter = new SecretJsonHttpMessageConverter(codec, JACKSON);
+
+    @Test
+    void matchesJacksonOnEveryDto() throws Exception {
+        Secret charged = new Secret("charged", "x", CREATED, CREATED.plusSeconds(60), 1, 0);
+        charged.setQuotaKey("acme");
+        List<Object> values = List.of(
+            new Secret("a1b2c3", "Y2lwaGVydGV4dA==", CREATED, CREATED.plusSeconds(3600), 3, 1),
+            new Secret("no-times", "x", null, null, 1, 0),
+            charged,
+            new SecretRequest("Y2lwaGVydGV4dA==", 3600),
+            new SecretResponse("a1b2c3"),
+            new SecretResponse("a1b2c3", "Y2lwaGVydGV4dA=="),
+            new ErrorResponse("VALIDATION_ERROR", "Ciphertext exceeds maximum size limit", 400),
+            new SecretMetadata(true, 59_000, 2));
+
+        for (Object value : values) {
+            byte[] ours = codec.write(value);
+            byte[] theirs = JACKSON.writeValueAsBytes(value);
+            assertEquals(JACKSON.readTree(theirs), JACKSON.readTree(ours), value.getClass().getSimpleName());
+            assertEquals(JACKSON.readTree(theirs),
+                JACKSON.readTree(JACKSON.writeValueAsBytes(codec.read(value.getClass(), theirs))), value.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void escapesRoundTrip() throws Exception {
+        String text = "quote\" backslash\\ slash/ tab\t newline\n nul\u0000 del\u007f "
+            + "é é € 🔐  ";
+        SecretResponse response = new SecretResponse("id", text);
+
+        byte[] json = codec.write(response);
+
+        assertEquals(text, codec.readSecretResponse(json).getCiphertext());
+        assertEquals(text, JACKSON.readValue(json, SecretResponse.class).getCiphertext());
+        assertEquals(text, codec.readSecretResponse(JACKSON.writeValueAsBytes(response)).getCiphertext());
+        // Raw UTF-8, not escapes, for everything printable
+        String raw = new String(json, StandardCharsets.UTF_8);
+        assertEquals(true, raw.contains("€ 🔐") && raw.contains("\\u0000") && raw.contains("\\u000a"));
+    }
+
+    @Test
+    void unicodeEscapesAndSurrogatePairsAreDecoded() {
+        byte[] json = "{\"id\":\"\\u0041\\u00e9\\u20AC\\ud83d\\udd10\",\"ciphertext\":\"\\b\\f\\r\\/\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+        SecretResponse response = codec.readSecretResponse(json);
+
+        assertEquals("Aé€🔐", response.getId());
+        assertEquals("\b\f\r/", response.getCiphertext());
+    }
+
+    @Test
+    void loneSurrogatesAreEscapedNotDropped() {
+        String text = "a\ud800b\udc00c\ud83d";
+
+        byte[] json = codec.write(new SecretResponse("id", text));
+
+        String raw = new String(json, StandardCharsets.US_ASCII);
+        assertEquals(true, raw.contains("a\\ud800b\\udc00c\\ud83d"), raw);
+        assertEquals(text, codec.readSecretResponse(json).getCiphertext());
+    }
+
+    @Test
+    void unknownFieldsAreLeftToJackson() throws Exception {
+        byte[] json = "{\"ciphertext\":\"abc\",\"expiresInSec\":60,\"clientVersion\":\"2\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> codec.readSecretRequest(json));
+
+        SecretRequest request = (SecretRequest) converter.read(SecretRequest.class, new MockHttpInputMessage(json));
+        assertEquals("abc", request.getCiphertext());
+        assertEquals(60, request.getExpiresInSec());
+    }
+
+    @Test
+    void validJsonOutsideTheFastPathFallsBackToJackson() throws Exception {
+        // Numbers written as floats and an exponent are valid JSON the codec does not take
+        byte[] json = "{\"exists\":true,\"expiresInMs\":1.5e3,\"viewsRemaining\":1.0}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> codec.readSecretMetadata(json));
+
+        SecretMetadata metadata = (SecretMetadata) converter.read(SecretMetadata.class, new MockHttpInputMessage(json));
+        assertEquals(1500, metadata.getExpiresInMs());
+        assertEquals(1, metadata.getViewsRemaining());
+    }
+
+    @Test
+    void malformedInputIsNotReadable() {
+        for (String body : List.of("", "{", "{\"ciphertext\":\"abc\"", "{\"ciphertext\":abc}", "[1]",
+                "{\"ciphertext\":\"a\\q\"}", "{\"expiresInSec\":\"soon\"}")) {
+            byte[] json = body.getBytes(StandardCharsets.UTF_8);
+            assertThrows(IllegalArgumentException.class, () -> codec.readSecretRequest(json), body);
+            assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(SecretRequest.class, new MockHttpInputMessage(json)), body);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.OnePassLink.backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * The single chain every request went through before the API got its own chain, kept as the
+ * reference for {@link SecurityHeadersParityTest} and {@code SecurityFilterChainBenchmark}
+ */
+@Configuration
+@Profile(LegacySecurityConfig.PROFILE)
+@EnableWebSecurity
+class LegacySecurityConfig {
+
+    // Keeps these configurations out of the application context's component scan
+    static final String PROFILE = "security-legacy";
+
+    /**
+     * Starts a bare web context with {@code config}, Spring MVC and nothing else
+     */
+    static AnnotationConfigWebApplicationContext start(Class<?> config) {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles(PROFILE);
+        context.register(config, MvcConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    @Bean
+    SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        http
+            .authorizeHttpRequests(authz -> authz
+                .requestMatchers("/api/**").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                .requestMatchers("/actuator/jfr").hasRole("OPS")
+                .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**").permitAll()
+                .requestMatchers("/swagger-resources/**", "/webjars/**").permitAll()
+                .anyRequest().denyAll()
+            )
+            .csrf(csrf -> csrf.disable())
+            .httpBasic(Customizer.withDefaults())
+            .headers(headers -> headers
+                .frameOptions(frameOptions -> frameOptions.deny())
+                .contentTypeOptions(contentTypeOptions -> {})
+                .httpStrictTransportSecurity(hstsConfig -> hstsConfig
+                    .maxAgeInSeconds(31536000)
+                    .includeSubDomains(true)
+                    .preload(true)
+                )
+                .referrerPolicy(referrerPolicy ->
+                    referrerPolicy.policy(ReferrerPolicyHeaderWriter.ReferrerPolicy.STRICT_ORIGIN_WHEN_CROSS_ORIGIN)
+                )
+                .addHeaderWriter((request, response) -> {
+                    String requestPath = request.getRequestURI();
+                    if (requestPath.startsWith("/swagger-ui") || requestPath.startsWith("/v3/api-docs")) {
+                        response.setHeader("Content-Security-Policy",
+                            "default-src 'self'; script-src 'self' 'unsafe-inline' 'unsafe-eval'; " +
+                            "style-src 'self' 'unsafe-inline'; img-src 'self' data: blob:; connect-src 'self'; " +
+                            "font-src 'self'; object-src 'none'; media-src 'none'; frame-src 'none'; " +
+                            "base-uri 'self'; form-action 'self';");
+                    } else {
+                        response.setHeader("Content-Security-Policy",
+                            "default-src 'self'; script-src 'self'; style-src 'self' 'unsafe-inline'; " +
+                            "img-src 'self' data:; connect-src 'self'; font-src 'self'; object-src 'none'; " +
+                            "media-src 'none'; frame-src 'none'; base-uri 'self'; form-action 'self';");
+                    }
+                    response.setHeader("X-Permitted-Cross-Domain-Policies", "none");
+                    response.setHeader("Cross-Origin-Embedder-Policy", "require-corp");
+                    response.setHeader("Cross-Origin-Opener-Policy", "same-origin");
+                    response.setHeader("Cross-Origin-Resource-Policy", "same-origin");
+                })
+            );
+        return http.build();
+    }
+
+    @Configuration
+    @Profile(PROFILE)
+    @EnableWebMvc
+    static class MvcConfig {
+    }
+}
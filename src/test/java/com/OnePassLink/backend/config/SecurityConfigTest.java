@@ -0,0 +1,121 @@
+package com.OnePassLink.backend.config;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Who may reach what through the production and dev security chains.
+ */
+class SecurityConfigTest {
+
+    // Keeps the nested configuration out of the application context's component scan
+    private static final String PROFILE = "security-rules";
+
+    private static final FilterChain TERMINAL = (request, response) -> { };
+
+    private AnnotationConfigWebApplicationContext context;
+
+    @AfterEach
+    void closeContext() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void productionChainsOpenProbesAndGuardProfiling() throws Exception {
+        Filter chain = chain(SecurityHeadersConfig.class);
+
+        assertEquals(200, run(chain, "GET", "/api/secrets/abc", null).getStatus());
+        assertEquals(200, run(chain, "GET", "/actuator/health", null).getStatus());
+        assertEquals(200, run(chain, "GET", "/actuator/health/readiness", null).getStatus());
+        assertEquals(200, run(chain, "GET", "/actuator/prometheus", null).getStatus());
+
+        MockHttpServletResponse anonymous = run(chain, "POST", "/actuator/jfr", null);
+        assertEquals(401, anonymous.getStatus());
+        assertTrue(anonymous.getHeader("WWW-Authenticate").startsWith("Basic"));
+        assertEquals(403, run(chain, "POST", "/actuator/jfr", "viewer").getStatus());
+        assertEquals(200, run(chain, "POST", "/actuator/jfr", "ops").getStatus());
+        assertEquals(200, run(chain, "GET", "/actuator/jfr/1", "ops").getStatus());
+        assertEquals(403, run(chain, "GET", "/actuator/env", "ops").getStatus());
+    }
+
+    @Test
+    void deniedRoutesOutsideActuatorDoNotChallenge() throws Exception {
+        Filter chain = chain(SecurityHeadersConfig.class);
+
+        MockHttpServletResponse denied = run(chain, "GET", "/admin", null);
+        assertEquals(403, denied.getStatus());
+        assertNull(denied.getHeader("WWW-Authenticate"));
+        assertEquals(200, run(chain, "GET", "/v3/api-docs", null).getStatus());
+    }
+
+    @Test
+    void devKeepsProfilingBehindOps() throws Exception {
+        Filter chain = chain(DevSecurityConfig.class, "dev");
+
+        assertEquals(200, run(chain, "GET", "/admin", null).getStatus());
+        assertEquals(200, run(chain, "GET", "/actuator/env", null).getStatus());
+        assertEquals(401, run(chain, "POST", "/actuator/jfr", null).getStatus());
+        assertEquals(401, run(chain, "GET", "/actuator/jfr/1", null).getStatus());
+        assertEquals(403, run(chain, "POST", "/actuator/jfr", "viewer").getStatus());
+        assertEquals(200, run(chain, "POST", "/actuator/jfr", "ops").getStatus());
+    }
+
+    private Filter chain(Class<?> config, String... profiles) {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        String[] active = new String[profiles.length + 1];
+        active[0] = PROFILE;
+        System.arraycopy(profiles, 0, active, 1, profiles.length);
+        context.getEnvironment().setActiveProfiles(active);
+        context.register(config, UsersConfig.class);
+        context.refresh();
+        return context.getBean("springSecurityFilterChain", Filter.class);
+    }
+
+    private static MockHttpServletResponse run(Filter chain, String method, String path, String user) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path); // as mapped by the dispatcher servlet on "/"
+        if (user != null) {
+            String credentials = user + ":" + user + "-password";
+            request.addHeader("Authorization",
+                "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(request, response, TERMINAL);
+        return response;
+    }
+
+    @Configuration
+    @Profile(PROFILE)
+    @EnableWebMvc
+    static class UsersConfig {
+
+        @Bean
+        InMemoryUserDetailsManager users() {
+            return new InMemoryUserDetailsManager(
+                User.withUsername("ops").password("{noop}ops-password").roles("OPS").build(),
+                User.withUsername("viewer").password("{noop}viewer-password").roles("VIEWER").build());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.OnePassLink.backend.config;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The lean API chain and the route-based header writer produce exactly the headers of the previous
+ * single {@code securityFilterChain} ({@link LegacySecurityConfig}). Their per-request cost is
+ * compared by {@code SecurityFilterChainBenchmark} in the benchmark profile.
+ */
+class SecurityHeadersParityTest {
+
+    private static final FilterChain TERMINAL = (request, response) -> { };
+
+    private static AnnotationConfigWebApplicationContext legacyContext;
+    private static AnnotationConfigWebApplicationContext currentContext;
+    private static Filter legacy;
+    private static Filter current;
+
+    @BeforeAll
+    static void startContexts() {
+        legacyContext = LegacySecurityConfig.start(LegacySecurityConfig.class);
+        currentContext = LegacySecurityConfig.start(SecurityHeadersConfig.class);
+        legacy = legacyContext.getBean("springSecurityFilterChain", Filter.class);
+        current = currentContext.getBean("springSecurityFilterChain", Filter.class);
+    }
+
+    @AfterAll
+    static void closeContexts() {
+        legacyContext.close();
+        currentContext.close();
+    }
+
+    @Test
+    void apiChainWritesTheSameHeaders() throws Exception {
+        MockHttpServletResponse before = run(legacy, request("/api/secrets/abc", true));
+        MockHttpServletResponse after = run(current, request("/api/secrets/abc", true));
+        assertEquals(200, before.getStatus());
+        assertEquals(200, after.getStatus());
+
+        assertEquals(before.getHeaderNames(), after.getHeaderNames());
+        for (String name : before.getHeaderNames()) {
+            assertEquals(before.getHeaderValues(name), after.getHeaderValues(name), name);
+        }
+
+        MockHttpServletResponse insecure = run(current, request("/api/secrets/abc", false));
+        assertNull(insecure.getHeader("Strict-Transport-Security"));
+    }
+
+    @Test
+    void docsKeepTheRelaxedPolicy() throws Exception {
+        MockHttpServletResponse before = run(legacy, request("/swagger-ui/index.html", false));
+        MockHttpServletResponse after = run(current, request("/swagger-ui/index.html", false));
+
+        assertEquals(before.getHeader("Content-Security-Policy"), after.getHeader("Content-Security-Policy"));
+        assertTrue(after.getHeader("Content-Security-Policy").contains("'unsafe-eval'"));
+    }
+
+    private static MockHttpServletResponse run(Filter chain, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(request, response, TERMINAL);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, boolean secure) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path); // as mapped by the dispatcher servlet on "/"
+        request.setSecure(secure);
+        return request;
+    }
+}
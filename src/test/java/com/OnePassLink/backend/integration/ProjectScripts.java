@@ -0,0 +1,41 @@
+package com.OnePassLink.backend.integration;
+
+import com.OnePassLink.backend.integration.RespStandInServer.Store;
+import com.OnePassLink.backend.util.LuaScriptProvider;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Java emulation of the single-secret consume script, registered on a {@link RespStandInServer}
+ * under the exact text {@code SecretRepository} currently ships so that fault injection and command
+ * accounting can run without Redis. Only that script is emulated: what the scripts do is tested
+ * against a real Redis (see {@link RealRedis}), and any other script fails loudly if evaluated.
+ */
+public final class ProjectScripts {
+
+    private static final String CONSUME_SCRIPT_START = "local value = redis.call('GET', KEYS[1])";
+
+    private ProjectScripts() {
+    }
+
+    /**
+     * @return number of scripts registered
+     */
+    public static int register(RespStandInServer server, LuaScriptProvider... providers) {
+        int registered = 0;
+        for (LuaScriptProvider provider : providers) {
+            for (RedisScript<?> script : provider.getScripts()) {
+                if (script.getScriptAsString().startsWith(CONSUME_SCRIPT_START)) {
+                    server.registerScript(script.getScriptAsString(), ProjectScripts::consume);
+                    registered++;
+                }
+            }
+        }
+        return registered;
+    }
+
+    private static Object consume(Store store, List<String> keys, List<byte[]> args) {
+        return store.getDel(keys.get(0));
+    }
+}
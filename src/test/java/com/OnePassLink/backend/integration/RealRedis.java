@@ -0,0 +1,95 @@
+package com.OnePassLink.backend.integration;
+
+import com.OnePassLink.backend.config.RedisConfig;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * A real Redis for tests that exercise the shipped Lua scripts, so script behaviour is checked
+ * against Redis itself rather than an emulation. Uses {@code REDIS_TEST_URL}
+ * ({@code redis://host:port/db}, database 15 by default; it is flushed between tests) when set,
+ * otherwise one {@code redis:7-alpine} container shared by all test classes when Docker is
+ * available. Tests calling {@link #connect} are skipped when neither is.
+ */
+public final class RealRedis {
+
+    private static final String IMAGE = "redis:7-alpine";
+    private static final int DEFAULT_DATABASE = 15;
+
+    private static boolean resolved;
+    private static URI endpoint;
+
+    private RealRedis() {
+    }
+
+    public static synchronized boolean isAvailable() {
+        if (!resolved) {
+            resolved = true;
+            endpoint = resolve();
+        }
+        return endpoint != null;
+    }
+
+    /**
+     * @return a started connection factory built through {@link RedisConfig}, like the application's
+     */
+    public static LettuceConnectionFactory connect(Duration commandTimeout) {
+        Assumptions.assumeTrue(isAvailable(), "No Redis for script tests: set REDIS_TEST_URL or start Docker");
+        String path = endpoint.getPath();
+        int database = path == null || path.length() <= 1 ? DEFAULT_DATABASE : Integer.parseInt(path.substring(1));
+        return connectionFactory(endpoint.getHost(), endpoint.getPort(), database, commandTimeout);
+    }
+
+    /**
+     * Builds a connection factory the way the application does, for any host
+     */
+    public static LettuceConnectionFactory connectionFactory(String host, int port, int database, Duration commandTimeout) {
+        RedisConfig config = new RedisConfig();
+        ReflectionTestUtils.setField(config, "redisHost", host);
+        ReflectionTestUtils.setField(config, "redisPort", port);
+        ReflectionTestUtils.setField(config, "redisPassword", "");
+        ReflectionTestUtils.setField(config, "redisDatabase", database);
+        ReflectionTestUtils.setField(config, "commandTimeout", commandTimeout);
+        LettuceConnectionFactory factory = (LettuceConnectionFactory) config.redisConnectionFactory();
+        factory.afterPropertiesSet();
+        return factory;
+    }
+
+    public static void flush(RedisTemplate<String, String> template) {
+        template.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushDb();
+            connection.scriptingCommands().scriptFlush();
+            return null;
+        });
+    }
+
+    public static long dbSize(RedisTemplate<String, String> template) {
+        Long size = template.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+        return size != null ? size : 0;
+    }
+
+    private static URI resolve() {
+        String url = System.getenv("REDIS_TEST_URL");
+        if (url == null || url.isBlank()) {
+            url = System.getProperty("redis.test.url");
+        }
+        if (url != null && !url.isBlank()) {
+            return URI.create(url.trim());
+        }
+        if (!DockerClientFactory.instance().isDockerAvailable()) {
+            return null;
+        }
+        // Left running for the rest of the test JVM; Testcontainers removes it on exit
+        GenericContainer<?> container = new GenericContainer<>(IMAGE).withExposedPorts(6379);
+        container.start();
+        return URI.create("redis://" + container.getHost() + ":" + container.getMappedPort(6379) + "/" + DEFAULT_DATABASE);
+    }
+}
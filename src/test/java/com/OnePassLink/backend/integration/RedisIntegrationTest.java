@@ -1,4 +1,281 @@
 package com.OnePassLink.backend.integration;
 
-public class RedisIntegrationTest {
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RespStandInServer.Latency;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.repository.CompactSecretStore;
+import com.OnePassLink.backend.repository.LocalSecretCache;
+import com.OnePassLink.backend.repository.SecretRepository;
+import com.OnePassLink.backend.util.DeadlineExceededException;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.OnePassLink.backend.util.RequestDeadline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Timeout, reconnect, script-cache and concurrency behaviour of {@link RedisConfig} plus
+ * {@link SecretRepository}, driven against the in-process RESP stand-in with injected faults.
+ * The stand-in is for faults and command accounting only; what the scripts themselves do is tested
+ * against a real Redis (see {@link RealRedis}).
+ */
+class RedisIntegrationTest {
+
+    private static final Duration COMMAND_TIMEOUT = Duration.ofMillis(500);
+
+    private RespStandInServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, String> template;
+    private SimpleMeterRegistry meterRegistry;
+    private SecretRepository repository;
+    // Same Redis, with the owner-local cache enabled: plays the node that created the secret
+    private SecretRepository ownerRepository;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new RespStandInServer();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        server.close();
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void negotiatesResp3AndFallsBackToResp2() {
+        connect();
+        assertEquals("PONG", ping());
+
+        connectionFactory.destroy();
+        server.resp3(false);
+        connect();
+        assertEquals("PONG", ping());
+        repository.save(secret("resp2"));
+        assertTrue(repository.findAndDelete("resp2").isPresent());
+    }
+
+    @Test
+    void stalledRedisFailsFastWithConfiguredTimeout() {
+        connect();
+        repository.save(secret("stalled"));
+        server.stall(Duration.ofSeconds(2));
+
+        long started = System.nanoTime();
+        assertThrows(QueryTimeoutException.class, () -> repository.exists("stalled"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertTrue(elapsedMs < COMMAND_TIMEOUT.toMillis() + 500, "timed out after " + elapsedMs + " ms");
+    }
+
+    @Test
+    void scriptCacheLossFallsBackToEval() {
+        connect();
+        repository.save(secret("noscript"));
+        server.noscript(1);
+
+        assertTrue(repository.findAndDelete("noscript").isPresent());
+        assertEquals(1, server.commandCount("EVAL"));
+
+        repository.save(secret("flushed"));
+        server.flushScripts();
+        assertTrue(repository.findAndDelete("flushed").isPresent());
+        assertEquals(2, server.commandCount("EVAL"));
+    }
+
+    @Test
+    void commandDroppedBeforeExecutionIsRetriedAfterReconnect() {
+        connect();
+        repository.save(secret("retried"));
+        server.dropBeforeExecute(1);
+
+        assertTrue(repository.findAndDelete("retried").isPresent());
+    }
+
+    @Test
+    void replyLostAfterConsumeLeavesSecretGone() {
+        connect();
+        repository.findAndDelete("warm"); // load the script so the dropped command really consumes
+        repository.save(secret("lost"));
+        server.dropAfterExecute(1);
+
+        // The consume ran but its reply was lost; the retried command finds nothing, so the
+        // caller sees 410 rather than a second copy of the secret
+        boolean returned;
+        try {
+            returned = repository.findAndDelete("lost").isPresent();
+        } catch (RuntimeException e) {
+            returned = false;
+        }
+        assertFalse(returned);
+        assertFalse(server.getStore().exists("secret:lost"));
+    }
+
+    @Test
+    void concurrentConsumesHaveExactlyOneWinner() throws Exception {
+        connect();
+        server.latency(Latency.uniform(Duration.ZERO, Duration.ofMillis(2)));
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String id = "race-" + round;
+                repository.save(secret(id));
+                List<Callable<Boolean>> consumers = Collections.nCopies(16,
+                    () -> repository.findAndDelete(id).isPresent());
+                int winners = 0;
+                for (Future<Boolean> result : pool.invokeAll(consumers)) {
+                    winners += result.get() ? 1 : 0;
+                }
+                assertEquals(1, winners, "round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void consumeLatencyStaysBoundedUnderTailLatency() throws Exception {
+        connect();
+        server.latency(Latency.withTail(Latency.uniform(Duration.ZERO, Duration.ofMillis(1)),
+            0.01, Latency.fixed(Duration.ofMillis(50))));
+        int threads = 8;
+        int perThread = 50;
+        for (int i = 0; i < threads * perThread; i++) {
+            repository.save(secret("bench-" + i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                workers.add(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        long started = System.nanoTime();
+                        assertTrue(repository.findAndDelete("bench-" + (offset + i)).isPresent());
+                        latencies.add(System.nanoTime() - started);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> worker : pool.invokeAll(workers)) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p99Ms = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) (sorted.size() * 0.99)));
+        assertTrue(p99Ms < COMMAND_TIMEOUT.toMillis(), "consume p99 was " + p99Ms + " ms");
+    }
+
+    @Test
+    void ownerCacheServesConsumeAndStillDeletesRedisCopy() {
+        connect();
+        ownerRepository.save(secret("owned"));
+        assertTrue(server.getStore().exists("secret:owned"));
+
+        assertEquals("ciphertext-owned", ownerRepository.findAndDelete("owned").orElseThrow().getCiphertext());
+        assertEquals(0, server.commandCount("EVALSHA") + server.commandCount("EVAL"));
+        assertFalse(server.getStore().exists("secret:owned"));
+        assertFalse(repository.findAndDelete("owned").isPresent());
+    }
+
+    @Test
+    void consumeIsNotStartedWithoutEnoughBudget() {
+        connect();
+        repository.save(secret("late"));
+        long commands = server.commandCount("EVALSHA") + server.commandCount("EVAL");
+
+        deadlineIn(Duration.ofMillis(20)); // below the 50ms destructive budget
+        assertThrows(DeadlineExceededException.class, () -> repository.findAndDelete("late"));
+        deadlineIn(Duration.ofMillis(-1));
+        assertThrows(DeadlineExceededException.class, () -> repository.exists("late"));
+
+        assertEquals(commands, server.commandCount("EVALSHA") + server.commandCount("EVAL"));
+        assertTrue(server.getStore().exists("secret:late"), "secret must survive a consume that never ran");
+        assertEquals(1, skipped("consume", DeadlineGuard.INSUFFICIENT_BUDGET));
+        assertEquals(1, skipped("exists", DeadlineGuard.EXPIRED));
+    }
+
+    @Test
+    void commandTimeoutIsCutToTheRemainingDeadline() {
+        connect(Duration.ofSeconds(2));
+        repository.save(secret("slow"));
+        server.latency("EXISTS", Latency.fixed(Duration.ofMillis(1500)));
+
+        deadlineIn(Duration.ofMillis(200));
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> repository.exists("slow"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The configured command timeout is 2s; the wheel timer adds up to ~100ms
+        assertTrue(elapsedMs < 1000, "exists took " + elapsedMs + "ms");
+    }
+
+    private void connect() {
+        connect(COMMAND_TIMEOUT);
+    }
+
+    private void connect(Duration commandTimeout) {
+        connectionFactory = RealRedis.connectionFactory("127.0.0.1", server.getPort(), 0, commandTimeout);
+        template = new RedisConfig().redisTemplate(connectionFactory);
+
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        CompactSecretStore compactStore = new CompactSecretStore(template, false, 512, 16, "auto", 256);
+        meterRegistry = new SimpleMeterRegistry();
+        DeadlineGuard deadlineGuard = new DeadlineGuard(50, meterRegistry);
+        repository = new SecretRepository(template, objectMapper, new SecretJsonCodec(), compactStore,
+            new LocalSecretCache(new SimpleMeterRegistry(), false, 0, 0, 0), deadlineGuard);
+        ownerRepository = new SecretRepository(template, objectMapper, new SecretJsonCodec(), compactStore,
+            new LocalSecretCache(new SimpleMeterRegistry(), true, 100, 1 << 20, 60), deadlineGuard);
+        ProjectScripts.register(server, repository);
+    }
+
+    private String ping() {
+        return template.execute(connection -> connection.ping(), true);
+    }
+
+    private static void deadlineIn(Duration budget) {
+        RequestDeadline.set(System.nanoTime() + budget.toNanos());
+    }
+
+    private double skipped(String operation, String reason) {
+        Counter counter = meterRegistry.find("deadline.skipped").tag("operation", operation).tag("reason", reason).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static Secret secret(String id) {
+        Instant now = Instant.now();
+        return new Secret(id, "ciphertext-" + id, now, now.plusSeconds(300), 1, 0);
+    }
 }
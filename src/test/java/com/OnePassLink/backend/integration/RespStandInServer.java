@@ -0,0 +1,699 @@
+package com.OnePassLink.backend.integration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-process Redis stand-in speaking RESP2 and RESP3 (negotiated with HELLO), for tests
+ * that must run without a real Redis.
+ *
+ * Implements the string commands this project issues (SET with EX/PX/NX/XX, GET, GETDEL, GETRANGE,
+ * DEL, EXISTS, PTTL, TTL, INCR, INCRBY, EXPIRE, PEXPIRE) plus EVAL/EVALSHA/SCRIPT. There is no Lua
+ * interpreter: each script is emulated by a Java {@link ScriptHandler} registered against its exact
+ * text (see {@link ProjectScripts}), so a changed script is caught as an unknown-script error rather
+ * than silently emulated with stale semantics. Commands (scripts included) run one at a time under
+ * a single lock, like Redis.
+ *
+ * Faults are programmable at runtime: per-command {@link Latency} distributions, global stalls,
+ * connection drops before or after a command executes, and NOSCRIPT replies to EVALSHA.
+ */
+public class RespStandInServer implements AutoCloseable {
+
+    /**
+     * Emulation of one Lua script; runs under the server lock
+     */
+    @FunctionalInterface
+    public interface ScriptHandler {
+        Object run(Store store, List<String> keys, List<byte[]> args);
+    }
+
+    /**
+     * Source of per-reply delays in nanoseconds
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long nextNanos();
+
+        static Latency none() {
+            return () -> 0;
+        }
+
+        static Latency fixed(Duration delay) {
+            long nanos = delay.toNanos();
+            return () -> nanos;
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            long from = min.toNanos();
+            long to = max.toNanos();
+            return () -> ThreadLocalRandom.current().nextLong(from, to + 1);
+        }
+
+        static Latency exponential(Duration mean) {
+            double meanNanos = mean.toNanos();
+            return () -> (long) (-meanNanos * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+        }
+
+        /**
+         * With the given probability, use the tail distribution instead of the base one
+         */
+        static Latency withTail(Latency base, double probability, Latency tail) {
+            return () -> ThreadLocalRandom.current().nextDouble() < probability ? tail.nextNanos() : base.nextNanos();
+        }
+    }
+
+    /**
+     * Simple-string reply, e.g. {@code +OK}
+     */
+    public record Status(String value) {
+        public static final Status OK = new Status("OK");
+    }
+
+    /**
+     * Error reply, e.g. {@code -ERR ...}
+     */
+    public record ErrorReply(String message) {
+    }
+
+    private static final Object NO_REPLY = new Object();
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final Store store = new Store();
+    private final Map<String, ScriptHandler> scriptsBySha = new ConcurrentHashMap<>();
+    private final Set<String> loadedScripts = ConcurrentHashMap.newKeySet();
+    private final Map<String, Latency> commandLatency = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger dropBeforeExecute = new AtomicInteger();
+    private final AtomicInteger dropAfterExecute = new AtomicInteger();
+    private final AtomicInteger noscriptReplies = new AtomicInteger();
+    private volatile Latency latency = Latency.none();
+    private volatile long stallUntilNanos;
+    private volatile boolean resp3Supported = true;
+    private volatile String redisVersion = "7.2.4";
+
+    public RespStandInServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    // ---- configuration and fault injection ----
+
+    /**
+     * Registers a Java emulation for a script; EVAL/EVALSHA of any other script fails
+     */
+    public RespStandInServer registerScript(String scriptText, ScriptHandler handler) {
+        scriptsBySha.put(sha1(scriptText), handler);
+        return this;
+    }
+
+    /**
+     * Delay applied before every reply, unless overridden per command
+     */
+    public RespStandInServer latency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public RespStandInServer latency(String command, Latency latency) {
+        commandLatency.put(command.toUpperCase(Locale.ROOT), latency);
+        return this;
+    }
+
+    /**
+     * Holds every command (including ones already received) until the stall is over
+     */
+    public RespStandInServer stall(Duration duration) {
+        stallUntilNanos = System.nanoTime() + duration.toNanos();
+        return this;
+    }
+
+    /**
+     * Closes the connection on each of the next {@code count} commands without executing them
+     */
+    public RespStandInServer dropBeforeExecute(int count) {
+        dropBeforeExecute.set(count);
+        return this;
+    }
+
+    /**
+     * Executes each of the next {@code count} commands, then closes the connection instead of replying
+     */
+    public RespStandInServer dropAfterExecute(int count) {
+        dropAfterExecute.set(count);
+        return this;
+    }
+
+    /**
+     * Closes every open client connection
+     */
+    public void dropConnections() {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * Answers the next {@code count} EVALSHA calls with NOSCRIPT even if the script is loaded
+     */
+    public RespStandInServer noscript(int count) {
+        noscriptReplies.set(count);
+        return this;
+    }
+
+    /**
+     * Forgets all loaded scripts, as after SCRIPT FLUSH or a Redis restart
+     */
+    public void flushScripts() {
+        loadedScripts.clear();
+    }
+
+    /**
+     * When disabled, HELLO is rejected so clients fall back to RESP2
+     */
+    public RespStandInServer resp3(boolean supported) {
+        this.resp3Supported = supported;
+        return this;
+    }
+
+    public RespStandInServer redisVersion(String version) {
+        this.redisVersion = version;
+        return this;
+    }
+
+    public long commandCount(String command) {
+        AtomicLong count = commandCounts.get(command.toUpperCase(Locale.ROOT));
+        return count != null ? count.get() : 0;
+    }
+
+    public void reset() {
+        synchronized (store) {
+            store.clear();
+        }
+        loadedScripts.clear();
+        commandLatency.clear();
+        commandCounts.clear();
+        dropBeforeExecute.set(0);
+        dropAfterExecute.set(0);
+        noscriptReplies.set(0);
+        latency = Latency.none();
+        stallUntilNanos = 0;
+        resp3Supported = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stallUntilNanos = 0;
+        serverSocket.close();
+        dropConnections();
+        executor.shutdownNow();
+    }
+
+    // ---- connection handling ----
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                clients.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Connection connection = new Connection();
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                awaitStall();
+                if (Thread.currentThread().isInterrupted() || takeOne(dropBeforeExecute)) {
+                    return;
+                }
+                String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+                commandCounts.computeIfAbsent(name, ignored -> new AtomicLong()).incrementAndGet();
+                Object reply;
+                synchronized (store) {
+                    reply = execute(connection, name, command);
+                }
+                if (takeOne(dropAfterExecute)) {
+                    return;
+                }
+                sleepNanos(commandLatency.getOrDefault(name, latency).nextNanos());
+                if (reply != NO_REPLY) {
+                    writeReply(out, reply, connection.protocol);
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+            }
+        } catch (SocketException | EOFException e) {
+            // client went away or the connection was dropped on purpose
+        } catch (IOException e) {
+            // same as above, surfaced differently by the stream
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    private void awaitStall() {
+        long remaining;
+        while ((remaining = stallUntilNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            sleepNanos(remaining);
+        }
+    }
+
+    private static boolean takeOne(AtomicInteger counter) {
+        return counter.getAndUpdate(value -> value > 0 ? value - 1 : 0) > 0;
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---- commands ----
+
+    private Object execute(Connection connection, String name, List<byte[]> command) {
+        List<byte[]> args = command.subList(1, command.size());
+        try {
+            return switch (name) {
+                case "PING" -> args.isEmpty() ? new Status("PONG") : args.get(0);
+                case "HELLO" -> hello(connection, args);
+                case "AUTH", "SELECT", "CLIENT", "READONLY" -> Status.OK;
+                case "INFO" -> info();
+                case "FLUSHALL", "FLUSHDB" -> {
+                    store.clear();
+                    yield Status.OK;
+                }
+                case "DBSIZE" -> (long) store.size();
+                case "SET" -> set(args);
+                case "GET" -> store.get(text(args, 0));
+                case "GETDEL" -> store.getDel(text(args, 0));
+                case "GETRANGE" -> store.getRange(text(args, 0), number(args, 1), number(args, 2));
+                case "DEL", "UNLINK" -> {
+                    long removed = 0;
+                    for (byte[] key : args) {
+                        removed += store.del(utf8(key)) ? 1 : 0;
+                    }
+                    yield removed;
+                }
+                case "EXISTS" -> {
+                    long found = 0;
+                    for (byte[] key : args) {
+                        found += store.exists(utf8(key)) ? 1 : 0;
+                    }
+                    yield found;
+                }
+                case "PTTL" -> store.pttl(text(args, 0));
+                case "TTL" -> {
+                    long pttl = store.pttl(text(args, 0));
+                    yield pttl < 0 ? pttl : (pttl + 500) / 1000;
+                }
+                case "INCR" -> store.incrBy(text(args, 0), 1);
+                case "INCRBY" -> store.incrBy(text(args, 0), number(args, 1));
+                case "EXPIRE" -> store.pexpire(text(args, 0), TimeUnit.SECONDS.toMillis(number(args, 1))) ? 1L : 0L;
+                case "PEXPIRE" -> store.pexpire(text(args, 0), number(args, 1)) ? 1L : 0L;
+                case "EVAL" -> eval(sha1(text(args, 0)), args, true);
+                case "EVALSHA" -> eval(text(args, 0).toLowerCase(Locale.ROOT), args, false);
+                case "SCRIPT" -> script(args);
+                case "QUIT" -> NO_REPLY;
+                default -> new ErrorReply("ERR unknown command '" + name + "'");
+            };
+        } catch (IndexOutOfBoundsException e) {
+            return new ErrorReply("ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command");
+        } catch (NumberFormatException e) {
+            return new ErrorReply("ERR value is not an integer or out of range");
+        }
+    }
+
+    private Object hello(Connection connection, List<byte[]> args) {
+        if (!resp3Supported) {
+            return new ErrorReply("ERR unknown command 'HELLO'");
+        }
+        int protocol = args.isEmpty() ? connection.protocol : (int) number(args, 0);
+        if (protocol != 2 && protocol != 3) {
+            return new ErrorReply("NOPROTO unsupported protocol version");
+        }
+        connection.protocol = protocol;
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("server", "redis");
+        reply.put("version", redisVersion);
+        reply.put("proto", (long) protocol);
+        reply.put("id", (long) connection.id);
+        reply.put("mode", "standalone");
+        reply.put("role", "master");
+        reply.put("modules", List.of());
+        return reply;
+    }
+
+    private Object info() {
+        String info = "# Server\r\nredis_version:" + redisVersion + "\r\nredis_mode:standalone\r\n" +
+            "# Memory\r\nused_memory:" + store.usedMemory() + "\r\nmaxmemory:0\r\n";
+        return info.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Object set(List<byte[]> args) {
+        String key = text(args, 0);
+        byte[] value = args.get(1);
+        long ttlMillis = -1;
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 2; i < args.size(); i++) {
+            String option = text(args, i).toUpperCase(Locale.ROOT);
+            switch (option) {
+                case "PX" -> ttlMillis = number(args, ++i);
+                case "EX" -> ttlMillis = TimeUnit.SECONDS.toMillis(number(args, ++i));
+                case "NX" -> nx = true;
+                case "XX" -> xx = true;
+                case "KEEPTTL" -> ttlMillis = store.pttl(key);
+                default -> {
+                    return new ErrorReply("ERR syntax error");
+                }
+            }
+        }
+        boolean exists = store.exists(key);
+        if ((nx && exists) || (xx && !exists)) {
+            return null;
+        }
+        store.set(key, value, ttlMillis);
+        return Status.OK;
+    }
+
+    private Object eval(String sha, List<byte[]> args, boolean loadOnEval) {
+        ScriptHandler handler = scriptsBySha.get(sha);
+        if (!loadOnEval && (takeOne(noscriptReplies) || !loadedScripts.contains(sha))) {
+            return new ErrorReply("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        if (handler == null) {
+            return new ErrorReply("ERR stand-in has no emulation for script " + sha);
+        }
+        loadedScripts.add(sha);
+        int numKeys = (int) number(args, 1);
+        List<String> keys = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            keys.add(text(args, 2 + i));
+        }
+        return handler.run(store, keys, new ArrayList<>(args.subList(2 + numKeys, args.size())));
+    }
+
+    private Object script(List<byte[]> args) {
+        String subcommand = text(args, 0).toUpperCase(Locale.ROOT);
+        switch (subcommand) {
+            case "LOAD" -> {
+                String sha = sha1(text(args, 1));
+                if (!scriptsBySha.containsKey(sha)) {
+                    return new ErrorReply("ERR stand-in has no emulation for script " + sha);
+                }
+                loadedScripts.add(sha);
+                return sha.getBytes(StandardCharsets.UTF_8);
+            }
+            case "EXISTS" -> {
+                List<Object> found = new ArrayList<>();
+                for (int i = 1; i < args.size(); i++) {
+                    found.add(loadedScripts.contains(text(args, i).toLowerCase(Locale.ROOT)) ? 1L : 0L);
+                }
+                return found;
+            }
+            case "FLUSH" -> {
+                loadedScripts.clear();
+                return Status.OK;
+            }
+            default -> {
+                return new ErrorReply("ERR unknown subcommand '" + subcommand + "'");
+            }
+        }
+    }
+
+    // ---- RESP encoding ----
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Expected array, got '" + (char) type + "'");
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected bulk string");
+            }
+            int length = Integer.parseInt(readLine(in));
+            byte[] part = in.readNBytes(length);
+            if (part.length < length || in.read() != '\r' || in.read() != '\n') {
+                throw new EOFException();
+            }
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            line.write(b);
+        }
+        in.read(); // '\n'
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void writeReply(OutputStream out, Object reply, int protocol) throws IOException {
+        if (reply == null) {
+            out.write(protocol == 3 ? "_\r\n".getBytes(StandardCharsets.US_ASCII) : "$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof Status status) {
+            writeLine(out, "+" + status.value());
+        } else if (reply instanceof ErrorReply error) {
+            writeLine(out, "-" + error.message());
+        } else if (reply instanceof Long number) {
+            writeLine(out, ":" + number);
+        } else if (reply instanceof Boolean bool) {
+            writeLine(out, ":" + (bool ? 1 : 0));
+        } else if (reply instanceof byte[] bytes) {
+            writeLine(out, "$" + bytes.length);
+            out.write(bytes);
+            writeLine(out, "");
+        } else if (reply instanceof String text) {
+            writeReply(out, text.getBytes(StandardCharsets.UTF_8), protocol);
+        } else if (reply instanceof List<?> list) {
+            writeLine(out, "*" + list.size());
+            for (Object item : list) {
+                writeReply(out, item, protocol);
+            }
+        } else if (reply instanceof Map<?, ?> map) {
+            writeLine(out, (protocol == 3 ? "%" : "*") + (protocol == 3 ? map.size() : map.size() * 2));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeReply(out, entry.getKey(), protocol);
+                writeReply(out, entry.getValue(), protocol);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported reply type " + reply.getClass());
+        }
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    // ---- helpers ----
+
+    static String sha1(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String text(List<byte[]> args, int index) {
+        return utf8(args.get(index));
+    }
+
+    private static long number(List<byte[]> args, int index) {
+        return Long.parseLong(text(args, index));
+    }
+
+    private static String utf8(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+    }
+
+    private static final class Connection {
+        private static final AtomicInteger IDS = new AtomicInteger();
+        final int id = IDS.incrementAndGet();
+        int protocol = 2;
+    }
+
+    /**
+     * Keyspace with lazy expiry. The store is also the server lock, so tests may read or seed it
+     * directly while the server is running.
+     */
+    public static final class Store {
+        private final Map<String, byte[]> values = new HashMap<>();
+        private final Map<String, Long> expiresAt = new HashMap<>();
+
+        public synchronized byte[] get(String key) {
+            return live(key) ? values.get(key) : null;
+        }
+
+        public synchronized byte[] getDel(String key) {
+            byte[] value = get(key);
+            del(key);
+            return value;
+        }
+
+        public synchronized byte[] getRange(String key, long start, long end) {
+            byte[] value = get(key);
+            if (value == null) {
+                return new byte[0];
+            }
+            int length = value.length;
+            int from = (int) Math.max(start < 0 ? length + start : start, 0);
+            int to = (int) Math.min(end < 0 ? length + end : end, length - 1);
+            if (from > to) {
+                return new byte[0];
+            }
+            byte[] range = new byte[to - from + 1];
+            System.arraycopy(value, from, range, 0, range.length);
+            return range;
+        }
+
+        public synchronized void set(String key, byte[] value, long ttlMillis) {
+            values.put(key, value);
+            if (ttlMillis >= 0) {
+                expiresAt.put(key, System.currentTimeMillis() + ttlMillis);
+            } else {
+                expiresAt.remove(key);
+            }
+        }
+
+        public synchronized boolean del(String key) {
+            boolean existed = live(key);
+            values.remove(key);
+            expiresAt.remove(key);
+            return existed;
+        }
+
+        public synchronized boolean exists(String key) {
+            return live(key);
+        }
+
+        public synchronized long pttl(String key) {
+            if (!live(key)) {
+                return -2;
+            }
+            Long expiry = expiresAt.get(key);
+            return expiry == null ? -1 : Math.max(expiry - System.currentTimeMillis(), 0);
+        }
+
+        public synchronized boolean pexpire(String key, long ttlMillis) {
+            if (!live(key)) {
+                return false;
+            }
+            expiresAt.put(key, System.currentTimeMillis() + ttlMillis);
+            return true;
+        }
+
+        public synchronized long incrBy(String key, long delta) {
+            byte[] current = get(key);
+            long value = (current == null ? 0 : Long.parseLong(utf8(current))) + delta;
+            values.put(key, Long.toString(value).getBytes(StandardCharsets.UTF_8));
+            return value;
+        }
+
+        public synchronized int size() {
+            List.copyOf(values.keySet()).forEach(this::live);
+            return values.size();
+        }
+
+        synchronized long usedMemory() {
+            long bytes = 0;
+            for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+                bytes += entry.getKey().length() + entry.getValue().length;
+            }
+            return bytes;
+        }
+
+        synchronized void clear() {
+            values.clear();
+            expiresAt.clear();
+        }
+
+        private boolean live(String key) {
+            Long expiry = expiresAt.get(key);
+            if (expiry != null && expiry <= System.currentTimeMillis()) {
+                values.remove(key);
+                expiresAt.remove(key);
+                return false;
+            }
+            return values.containsKey(key);
+        }
+    }
+}
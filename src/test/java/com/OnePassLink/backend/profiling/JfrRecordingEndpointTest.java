@@ -0,0 +1,51 @@
+package com.OnePassLink.backend.profiling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A recording runs in the background: the request that starts it returns at once with a handle.
+ */
+class JfrRecordingEndpointTest {
+
+    private final JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint();
+
+    @AfterEach
+    void discard() throws Exception {
+        endpoint.discardCurrent();
+    }
+
+    @Test
+    void startReturnsAHandleAndTheDumpIsServedOnceDone() throws Exception {
+        ReflectionTestUtils.setField(endpoint, "defaultDurationSeconds", 30);
+        ReflectionTestUtils.setField(endpoint, "maxDurationSeconds", 1);
+
+        long started = System.nanoTime();
+        WebEndpointResponse<JfrRecordingEndpoint.Handle> response = endpoint.start(null);
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 1000);
+        assertEquals(202, response.getStatus());
+        JfrRecordingEndpoint.Handle handle = response.getBody();
+        assertEquals(1, handle.durationSeconds());
+
+        assertEquals(429, endpoint.start(1).getStatus());
+        assertEquals(202, endpoint.recording(handle.id()).getStatus());
+        assertEquals(404, endpoint.recording("unknown").getStatus());
+
+        long giveUp = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        WebEndpointResponse<Resource> dump = endpoint.recording(handle.id());
+        while (dump.getStatus() == 202 && System.nanoTime() < giveUp) {
+            Thread.sleep(50);
+            dump = endpoint.recording(handle.id());
+        }
+        assertEquals(200, dump.getStatus());
+        assertTrue(dump.getBody().contentLength() > 0);
+    }
+}
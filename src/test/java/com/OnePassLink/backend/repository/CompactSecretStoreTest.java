@@ -0,0 +1,200 @@
+package com.OnePassLink.backend.repository;
+
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compact hash-bucket storage against a real Redis (see {@link RealRedis}), through
+ * {@link SecretRepository} as the application uses it.
+ */
+class CompactSecretStoreTest {
+
+    private static final int MAX_RECORD_BYTES = 512;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+    private static CompactSecretStore sweeperStore;
+    private static SecretRepository repository;
+    // Key-per-secret layout on the same Redis, e.g. a node that has not enabled compact mode yet
+    private static SecretRepository plainRepository;
+    private static String listpackValueSetting;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+        listpackValueSetting = config("hash-max-ziplist-value");
+        // As in docker-compose.yml
+        template.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().setConfig("hash-max-ziplist-value", String.valueOf(MAX_RECORD_BYTES));
+            return null;
+        });
+
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        DeadlineGuard deadlineGuard = new DeadlineGuard(50, new SimpleMeterRegistry());
+        // Two buckets, both swept every tick
+        sweeperStore = new CompactSecretStore(template, true, MAX_RECORD_BYTES, 1, "sweeper", 2);
+        repository = new SecretRepository(template, objectMapper, new SecretJsonCodec(), sweeperStore,
+            new LocalSecretCache(new SimpleMeterRegistry(), false, 0, 0, 0), deadlineGuard);
+        plainRepository = new SecretRepository(template, objectMapper, new SecretJsonCodec(),
+            new CompactSecretStore(template, false, MAX_RECORD_BYTES, 1, "sweeper", 2),
+            new LocalSecretCache(new SimpleMeterRegistry(), false, 0, 0, 0), deadlineGuard);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            template.execute((RedisCallback<Void>) connection -> {
+                connection.serverCommands().setConfig("hash-max-ziplist-value", listpackValueSetting);
+                return null;
+            });
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearKeyspace() {
+        RealRedis.flush(template);
+    }
+
+    @Test
+    void secretIsStoredInItsBucketAndConsumedOnce() {
+        repository.save(secret("AAAAone", 64, Duration.ofMinutes(5)));
+
+        String bucket = sweeperStore.bucketKey("AAAAone");
+        assertFalse(template.hasKey("secret:AAAAone"));
+        assertTrue(template.opsForHash().hasKey(bucket, "AAAAone"));
+        assertTrue(template.getExpire(bucket) > 0, "bucket carries the longest field TTL");
+        assertTrue(repository.exists("AAAAone"));
+        assertTrue(repository.findMetadata("AAAAone").isExists());
+
+        assertEquals("AAAAone", repository.findAndDelete("AAAAone").orElseThrow().getId());
+        assertFalse(repository.findAndDelete("AAAAone").isPresent());
+        assertEquals(0, template.opsForHash().size(bucket));
+    }
+
+    @Test
+    void largestAcceptedRecordKeepsTheBucketListpackEncoded() {
+        SecretJsonCodec codec = new SecretJsonCodec();
+        int overhead = codec.writeSecret(secret("AAAAfits", 0, Duration.ofMinutes(5))).length;
+        // Record plus the 17-byte expiry header is exactly max-record-bytes
+        Secret fits = secret("AAAAfits", MAX_RECORD_BYTES - 17 - overhead, Duration.ofMinutes(5));
+        Secret tooLarge = secret("AAAAlarge", MAX_RECORD_BYTES - 17 - overhead + 1, Duration.ofMinutes(5));
+
+        repository.save(fits);
+        repository.save(tooLarge);
+
+        String bucket = sweeperStore.bucketKey("AAAAfits");
+        assertTrue(template.opsForHash().hasKey(bucket, "AAAAfits"));
+        assertTrue(template.hasKey("secret:AAAAlarge"), "oversized record falls back to its own key");
+        String encoding = encoding(bucket);
+        assertTrue(encoding.equals("listpack") || encoding.equals("ziplist"), "bucket encoding was " + encoding);
+        assertTrue(repository.findAndDelete("AAAAlarge").isPresent());
+        assertTrue(repository.findAndDelete("AAAAfits").isPresent());
+    }
+
+    @Test
+    void expiredFieldsAreNeverServedAndGetSwept() throws Exception {
+        repository.save(secret("AAAAshort", 64, Duration.ofMillis(150)));
+        repository.save(secret("AAAAlong", 64, Duration.ofMinutes(5)));
+        String bucket = sweeperStore.bucketKey("AAAAshort");
+        assertEquals(2, template.opsForHash().size(bucket));
+
+        Thread.sleep(300);
+        // Still in the hash until the sweeper gets there, but invisible
+        assertEquals(2, template.opsForHash().size(bucket));
+        assertFalse(repository.findMetadata("AAAAshort").isExists());
+
+        sweeperStore.sweepExpired();
+        assertEquals(1, template.opsForHash().size(bucket));
+        assertFalse(repository.findAndDelete("AAAAshort").isPresent());
+        assertTrue(repository.findAndDelete("AAAAlong").isPresent());
+    }
+
+    @Test
+    void expiredFieldIsNotReturnedBeforeTheSweep() throws Exception {
+        repository.save(secret("AAAAstale", 64, Duration.ofMillis(100)));
+        Thread.sleep(200);
+
+        assertFalse(repository.findAndDelete("AAAAstale").isPresent());
+        assertFalse(repository.findAndDeleteAll(List.of("AAAAstale")).get(0).isPresent());
+    }
+
+    @Test
+    void keyPerSecretRecordsStayReadable() {
+        plainRepository.save(secret("AAAAplain", 64, Duration.ofMinutes(5)));
+        repository.save(secret("AAAAbucket", 64, Duration.ofMinutes(5)));
+        assertTrue(template.hasKey("secret:AAAAplain"));
+
+        assertEquals(1, repository.findMetadata("AAAAplain").getViewsRemaining());
+        List<Optional<Secret>> results = repository.findAndDeleteAll(List.of("AAAAbucket", "AAAAnone", "AAAAplain"));
+        assertEquals("AAAAbucket", results.get(0).orElseThrow().getId());
+        assertFalse(results.get(1).isPresent());
+        assertEquals("AAAAplain", results.get(2).orElseThrow().getId());
+        assertEquals(0, RealRedis.dbSize(template));
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void fieldsExpireInRedisWhenSupported() {
+        String[] version = String.valueOf(info().getProperty("redis_version")).split("\\.");
+        int major = Integer.parseInt(version[0]);
+        assumeTrue(major > 7 || (major == 7 && Integer.parseInt(version[1]) >= 4), "needs HPEXPIRE (Redis 7.4+)");
+        CompactSecretStore autoStore = new CompactSecretStore(template, true, MAX_RECORD_BYTES, 1, "auto", 2);
+
+        autoStore.save("AAAAttl", new SecretJsonCodec().writeSecret(secret("AAAAttl", 16, Duration.ofMinutes(5))),
+            Instant.now().plusSeconds(300));
+
+        DefaultRedisScript<List> hpttl = new DefaultRedisScript<>(
+            "return redis.call('HPTTL', KEYS[1], 'FIELDS', 1, ARGV[1])", List.class);
+        List<?> ttl = template.execute(hpttl, List.of(autoStore.bucketKey("AAAAttl")), "AAAAttl");
+        long millis = ((Number) ttl.get(0)).longValue();
+        assertTrue(millis > 0 && millis <= 300_000, "field ttl was " + millis);
+    }
+
+    private static String encoding(String key) {
+        return template.execute(new DefaultRedisScript<>("return redis.call('OBJECT', 'ENCODING', KEYS[1])", String.class),
+            List.of(key));
+    }
+
+    private static String config(String name) {
+        Properties config = template.execute((RedisCallback<Properties>) connection ->
+            connection.serverCommands().getConfig(name));
+        return config.getProperty(name);
+    }
+
+    private static Properties info() {
+        return template.execute((RedisCallback<Properties>) RedisConnection::info);
+    }
+
+    private static Secret secret(String id, int ciphertextLength, Duration ttl) {
+        Instant now = Instant.now();
+        return new Secret(id, "c".repeat(ciphertextLength), now, now.plus(ttl), 1, 0);
+    }
+}
@@ -1,4 +1,154 @@
 package com.OnePassLink.backend.repository;
 
-public class SecretRepositoryTest {
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.model.SecretMetadata;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Repository behaviour against a real Redis running the shipped scripts (see {@link RealRedis}).
+ * Fault injection and command accounting live in the stand-in based {@code RedisIntegrationTest}.
+ */
+class SecretRepositoryTest {
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+    private static SecretRepository repository;
+    // Same Redis, with the owner-local cache enabled: plays the node that created the secret
+    private static SecretRepository ownerRepository;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        CompactSecretStore compactStore = new CompactSecretStore(template, false, 512, 16, "auto", 256);
+        DeadlineGuard deadlineGuard = new DeadlineGuard(50, new SimpleMeterRegistry());
+        repository = new SecretRepository(template, objectMapper, new SecretJsonCodec(), compactStore,
+            new LocalSecretCache(new SimpleMeterRegistry(), false, 0, 0, 0), deadlineGuard);
+        ownerRepository = new SecretRepository(template, objectMapper, new SecretJsonCodec(), compactStore,
+            new LocalSecretCache(new SimpleMeterRegistry(), true, 100, 1 << 20, 60), deadlineGuard);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearKeyspace() {
+        RealRedis.flush(template);
+    }
+
+    @Test
+    void findAndDeleteReturnsSecretExactlyOnce() {
+        repository.save(secret("one", Duration.ofMinutes(5)));
+
+        Optional<Secret> first = repository.findAndDelete("one");
+        assertTrue(first.isPresent());
+        assertEquals("ciphertext-one", first.get().getCiphertext());
+        assertFalse(repository.findAndDelete("one").isPresent());
+        assertFalse(repository.exists("one"));
+    }
+
+    @Test
+    void saveAppliesTtl() throws Exception {
+        repository.save(secret("short", Duration.ofMillis(300)));
+        long pttl = template.getExpire("secret:short", TimeUnit.MILLISECONDS);
+        assertTrue(pttl > 0 && pttl <= 300, "pttl was " + pttl);
+
+        Thread.sleep(400);
+        assertFalse(repository.exists("short"));
+    }
+
+    @Test
+    void findMetadataDoesNotConsume() {
+        repository.save(secret("meta", Duration.ofMinutes(5)));
+
+        SecretMetadata metadata = repository.findMetadata("meta");
+        assertTrue(metadata.isExists());
+        assertEquals(1, metadata.getViewsRemaining());
+        assertTrue(metadata.getExpiresInMs() > 0 && metadata.getExpiresInMs() <= Duration.ofMinutes(5).toMillis());
+        assertTrue(repository.exists("meta"));
+        assertFalse(repository.findMetadata("missing").isExists());
+    }
+
+    @Test
+    void findMetadataCountsRemainingViews() {
+        Instant now = Instant.now();
+        repository.save(new Secret("multi", "ciphertext-multi", now, now.plusSeconds(300), 5, 2));
+
+        SecretMetadata metadata = repository.findMetadata("multi");
+        assertTrue(metadata.isExists());
+        assertEquals(3, metadata.getViewsRemaining());
+    }
+
+    @Test
+    void findMetadataReportsConsumedAndExpiredSecretsAsMissing() throws Exception {
+        repository.save(secret("consumed", Duration.ofMinutes(5)));
+        repository.save(secret("expiring", Duration.ofMillis(100)));
+        repository.findAndDelete("consumed");
+
+        Thread.sleep(200);
+        assertFalse(repository.findMetadata("consumed").isExists());
+        assertFalse(repository.findMetadata("expiring").isExists());
+        assertEquals(0, repository.findMetadata("expiring").getExpiresInMs());
+    }
+
+    @Test
+    void findMetadataFallsBackForLegacyRecords() {
+        String legacy = "{\"id\":\"legacy\",\"ciphertext\":\"" + "x".repeat(100) + "\",\"maxViews\":3,\"views\":1}";
+        template.opsForValue().set("secret:legacy", legacy, Duration.ofMinutes(1));
+
+        assertEquals(2, repository.findMetadata("legacy").getViewsRemaining());
+    }
+
+    @Test
+    void findAndDeleteAllKeepsRequestOrder() {
+        repository.save(secret("a", Duration.ofMinutes(5)));
+        repository.save(secret("c", Duration.ofMinutes(5)));
+
+        List<Optional<Secret>> results = repository.findAndDeleteAll(List.of("c", "b", "a"));
+        assertEquals("c", results.get(0).orElseThrow().getId());
+        assertFalse(results.get(1).isPresent());
+        assertEquals("a", results.get(2).orElseThrow().getId());
+        assertEquals(0, RealRedis.dbSize(template));
+    }
+
+    @Test
+    void ownerCacheLosesToConsumeOnAnotherNode() {
+        ownerRepository.save(secret("routed-away", Duration.ofMinutes(5)));
+
+        assertTrue(repository.findAndDelete("routed-away").isPresent());
+        assertFalse(ownerRepository.findAndDelete("routed-away").isPresent());
+    }
+
+    private static Secret secret(String id, Duration ttl) {
+        Instant now = Instant.now();
+        return new Secret(id, "ciphertext-" + id, now, now.plus(ttl), 1, 0);
+    }
 }
@@ -0,0 +1,185 @@
+package com.OnePassLink.backend.service;
+
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import com.OnePassLink.backend.model.FileUpload;
+import com.OnePassLink.backend.model.FileUploadRequest;
+import com.OnePassLink.backend.repository.FileSecretStore;
+import com.OnePassLink.backend.repository.FileSecretStore.Completion;
+import com.OnePassLink.backend.repository.FileSecretStore.Manifest;
+import com.OnePassLink.backend.repository.FileSecretStore.Session;
+import com.OnePassLink.backend.service.FileSecretService.ChunkResult;
+import com.OnePassLink.backend.util.ApiKeyQuotas;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.OnePassLink.backend.util.IdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Chunked file secrets against a real Redis running the upload and claim scripts (see {@link RealRedis}).
+ */
+class FileSecretServiceTest {
+
+    private static final int CHUNK = 4096;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+    private static ApiKeyQuotas apiKeyQuotas;
+    private static FileSecretService service;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FileSecretStore store = new FileSecretStore(template, new DeadlineGuard(50, meterRegistry));
+        apiKeyQuotas = mock(ApiKeyQuotas.class);
+        service = new FileSecretService(store, new IdGenerator(false, ""), apiKeyQuotas, meterRegistry,
+            true, 1 << 20, CHUNK, 3600, 300);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearKeyspace() {
+        RealRedis.flush(template);
+    }
+
+    @Test
+    void resumedUploadIsStreamedOneChunkAtATimeAndOnlyOnce() throws IOException {
+        byte[] file = randomBytes(2 * CHUNK + 100);
+        FileUpload upload = service.startUpload(new FileUploadRequest(file.length, 3600));
+        String id = upload.getId();
+        assertEquals(3, upload.getChunks());
+
+        // First attempt is interrupted after chunks 0 and 2
+        assertEquals(ChunkResult.STORED, service.storeChunk(id, 0, chunk(file, 0)));
+        assertEquals(ChunkResult.STORED, service.storeChunk(id, 2, chunk(file, 2)));
+        assertEquals(List.of(0, 2), service.getUpload(id).orElseThrow().getReceived());
+        assertEquals(Completion.MISSING_CHUNKS, service.completeUpload(id));
+        assertFalse(service.fileExists(id));
+
+        assertEquals(ChunkResult.STORED, service.storeChunk(id, 1, chunk(file, 1)));
+        assertEquals(Completion.OK, service.completeUpload(id));
+        assertTrue(service.fileExists(id));
+        assertTrue(service.getUpload(id).isEmpty());
+        assertEquals(ChunkResult.NO_UPLOAD, service.storeChunk(id, 1, chunk(file, 1)));
+
+        Manifest manifest = service.claimFile(id).orElseThrow();
+        assertTrue(service.claimFile(id).isEmpty());
+        assertFalse(service.fileExists(id));
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int[] writes = {0};
+        service.stream(id, manifest, new OutputStream() {
+            @Override
+            public void write(int b) {
+                received.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // Later chunks are still in Redis: nothing is read ahead of the writer
+                for (int i = writes[0] + 1; i < manifest.chunks(); i++) {
+                    assertTrue(template.hasKey("file:" + id + ":" + i));
+                }
+                writes[0]++;
+                received.write(b, off, len);
+            }
+        });
+
+        assertEquals(3, writes[0]);
+        assertArrayEquals(file, received.toByteArray());
+        assertEquals(0, RealRedis.dbSize(template));
+    }
+
+    @Test
+    void rejectsChunksOfTheWrongSizeOrIndex() throws IOException {
+        byte[] file = randomBytes(CHUNK + 10);
+        String id = service.startUpload(new FileUploadRequest(file.length, 3600)).getId();
+
+        assertEquals(ChunkResult.BAD_SIZE, service.storeChunk(id, 0, new ByteArrayInputStream(new byte[CHUNK - 1])));
+        assertEquals(ChunkResult.BAD_SIZE, service.storeChunk(id, 1, new ByteArrayInputStream(new byte[CHUNK])));
+        assertEquals(ChunkResult.BAD_INDEX, service.storeChunk(id, 2, new ByteArrayInputStream(new byte[10])));
+        assertEquals(ChunkResult.NO_UPLOAD, service.storeChunk("unknown", 0, chunk(file, 0)));
+        assertEquals(Completion.NO_UPLOAD, service.completeUpload("unknown"));
+        assertTrue(service.getUpload(id).orElseThrow().getReceived().isEmpty());
+    }
+
+    @Test
+    void abortedDownloadLeavesNothingBehind() throws IOException {
+        byte[] file = randomBytes(4 * CHUNK);
+        String id = service.startUpload(new FileUploadRequest(file.length, 3600)).getId();
+        for (int i = 0; i < 4; i++) {
+            service.storeChunk(id, i, chunk(file, i));
+        }
+        assertEquals(Completion.OK, service.completeUpload(id));
+
+        Optional<Manifest> manifest = service.claimFile(id);
+        assertThrows(IOException.class, () -> service.stream(id, manifest.orElseThrow(), new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client went away");
+            }
+        }));
+
+        assertEquals(0, RealRedis.dbSize(template));
+    }
+
+    @Test
+    void keyedFileReturnsItsQuotaChargeWhenClaimed() throws IOException {
+        byte[] file = randomBytes(100);
+        String id = service.startUpload(new FileUploadRequest(file.length, 3600), "acme").getId();
+        service.storeChunk(id, 0, chunk(file, 0));
+        Session session = service.findSession(id).orElseThrow();
+        assertEquals("acme", session.quotaKey());
+
+        Instant expiresAt = Instant.ofEpochMilli(System.currentTimeMillis() + 3_600_000);
+        assertEquals(Completion.OK, service.completeUpload(id, session, expiresAt));
+        Manifest manifest = service.claimFile(id).orElseThrow();
+
+        assertEquals("acme", manifest.quotaKey());
+        verify(apiKeyQuotas).consumed("acme", file.length, expiresAt);
+    }
+
+    private static ByteArrayInputStream chunk(byte[] file, int index) {
+        int from = index * CHUNK;
+        return new ByteArrayInputStream(Arrays.copyOfRange(file, from, Math.min(from + CHUNK, file.length)));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,123 @@
+package com.OnePassLink.backend.service;
+
+import com.OnePassLink.backend.codec.SecretJsonCodec;
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import com.OnePassLink.backend.model.Secret;
+import com.OnePassLink.backend.repository.CompactSecretStore;
+import com.OnePassLink.backend.repository.LocalSecretCache;
+import com.OnePassLink.backend.repository.SecretRepository;
+import com.OnePassLink.backend.util.DeadlineGuard;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyspace sampling and the collection lease against a real Redis (see {@link RealRedis}).
+ */
+class KeyspaceStatsCollectorTest {
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+    private static SecretRepository plainRepository;
+    private static SecretRepository compactRepository;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+        plainRepository = repository(false);
+        compactRepository = repository(true);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearKeyspace() {
+        RealRedis.flush(template);
+    }
+
+    @Test
+    void bucketsAreSampledPerLiveField() throws Exception {
+        plainRepository.save(secret("AAAAplain1", Duration.ofSeconds(30)));
+        plainRepository.save(secret("AAAAplain2", Duration.ofMinutes(10)));
+        compactRepository.save(secret("AAAAfield1", Duration.ofSeconds(30)));
+        compactRepository.save(secret("AAAAfield2", Duration.ofMinutes(10)));
+        compactRepository.save(secret("AAAAfield3", Duration.ofMinutes(10)));
+        compactRepository.save(secret("AAAAstale", Duration.ofMillis(100)));
+        Thread.sleep(200); // expired, but no sweeper has run
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        KeyspaceStatsCollector collector = collector(registry, 10_000);
+        collector.collect();
+
+        assertEquals(5, gauge(registry, "secrets.keyspace.live"));
+        assertEquals(2, gauge(registry, "secrets.keyspace.near_expiry"));
+        assertEquals(5, registry.get("secrets.keyspace.key.size").summary().count());
+        int recordBytes = new SecretJsonCodec().writeSecret(secret("AAAAfield1", Duration.ofMinutes(10))).length;
+        assertTrue(registry.get("secrets.keyspace.key.size").summary().max() <= recordBytes + 1,
+            "bucket samples must not include the bucket or the expiry header");
+        assertTrue(registry.get("secrets.keyspace.key.ttl").summary().max() <= 600);
+    }
+
+    @Test
+    void onlyTheLeaseHolderCollects() throws Exception {
+        plainRepository.save(secret("AAAAplain1", Duration.ofMinutes(10)));
+        SimpleMeterRegistry registryA = new SimpleMeterRegistry();
+        SimpleMeterRegistry registryB = new SimpleMeterRegistry();
+        KeyspaceStatsCollector nodeA = collector(registryA, 300);
+        KeyspaceStatsCollector nodeB = collector(registryB, 300);
+
+        nodeA.collect();
+        nodeB.collect();
+        assertEquals(1, gauge(registryA, "secrets.keyspace.collector"));
+        assertEquals(1, gauge(registryA, "secrets.keyspace.live"));
+        assertEquals(0, gauge(registryB, "secrets.keyspace.collector"));
+        assertEquals(0, registryB.get("secrets.keyspace.key.size").summary().count());
+
+        // Node A stops renewing; B takes over once the lease lapses
+        Thread.sleep(400);
+        nodeB.collect();
+        nodeA.collect();
+        assertEquals(1, gauge(registryB, "secrets.keyspace.collector"));
+        assertEquals(1, gauge(registryB, "secrets.keyspace.live"));
+        assertEquals(0, gauge(registryA, "secrets.keyspace.collector"));
+        assertEquals(0, gauge(registryA, "secrets.keyspace.live"));
+    }
+
+    private static KeyspaceStatsCollector collector(SimpleMeterRegistry registry, long leaseMillis) {
+        return new KeyspaceStatsCollector(template, registry, true, "secret*", 100, 1000, 1000, 60, leaseMillis);
+    }
+
+    private static double gauge(SimpleMeterRegistry registry, String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private static SecretRepository repository(boolean compact) {
+        return new SecretRepository(template, JsonMapper.builder().findAndAddModules().build(), new SecretJsonCodec(),
+            new CompactSecretStore(template, compact, 512, 4, "sweeper", 16),
+            new LocalSecretCache(new SimpleMeterRegistry(), false, 0, 0, 0),
+            new DeadlineGuard(50, new SimpleMeterRegistry()));
+    }
+
+    private static Secret secret(String id, Duration ttl) {
+        Instant now = Instant.now();
+        return new Secret(id, "ciphertext-" + id, now, now.plus(ttl), 1, 0);
+    }
+}
@@ -0,0 +1,116 @@
+package com.OnePassLink.backend.service;
+
+import com.OnePassLink.backend.OnePassLinkBackendApplication;
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the application against a real Redis (see {@link RealRedis}) with the warm-up enabled and
+ * probes readiness while it runs.
+ */
+class StartupWarmupTest {
+
+    private static final long WARMUP_MILLIS = 1500;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+        RealRedis.flush(template);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            RealRedis.flush(template);
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void readinessStaysDownUntilWarmupHasRunOverHttp() throws Exception {
+        CompletableFuture<Integer> port = new CompletableFuture<>();
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(OnePassLinkBackendApplication.class)
+            .listeners((ApplicationListener<WebServerInitializedEvent>) event ->
+                port.complete(event.getWebServer().getPort()));
+        CompletableFuture<ConfigurableApplicationContext> started = CompletableFuture.supplyAsync(() -> builder.run(
+            "--spring.profiles.active=test",
+            "--server.port=0",
+            "--spring.data.redis.host=" + connectionFactory.getHostName(),
+            "--spring.data.redis.port=" + connectionFactory.getPort(),
+            "--spring.data.redis.database=" + connectionFactory.getDatabase(),
+            "--app.secret.node-affinity.enabled=true",
+            "--app.secret.node-affinity.node-tag=test",
+            "--app.warmup.enabled=true",
+            // Never settles, so the warm-up runs for its whole time budget
+            "--app.warmup.min-iterations=1000000",
+            "--app.warmup.max-iterations=1000000",
+            "--app.warmup.max-duration-ms=" + WARMUP_MILLIS));
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI readiness = URI.create("http://127.0.0.1:" + port.get(30, TimeUnit.SECONDS) + "/actuator/health/readiness");
+        long listening = System.nanoTime();
+        List<Integer> whileStarting = new ArrayList<>();
+        long firstReadyMillis = -1;
+        try {
+            while (firstReadyMillis < 0) {
+                boolean startupReturned = started.isDone();
+                int status = client.send(HttpRequest.newBuilder(readiness).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status == 200) {
+                    firstReadyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - listening);
+                } else if (!startupReturned) {
+                    whileStarting.add(status);
+                }
+                Thread.sleep(20);
+            }
+
+            ConfigurableApplicationContext context = started.get(30, TimeUnit.SECONDS);
+            try {
+                assertFalse(whileStarting.isEmpty());
+                assertTrue(whileStarting.stream().allMatch(status -> status == 503), whileStarting::toString);
+                assertTrue(firstReadyMillis >= WARMUP_MILLIS, "ready after " + firstReadyMillis + " ms");
+
+                MeterRegistry registry = context.getBean(MeterRegistry.class);
+                assertEquals(1, registry.get("app.warmup.duration").timer().count());
+                // Every cycle went through the servlet stack and consumed through Redis, not the local cache
+                Timer consumes = registry.get("http.server.requests")
+                    .tags("method", "GET", "uri", "/api/secrets/{id}", "status", "200").timer();
+                assertTrue(consumes.count() > 0);
+                assertEquals(0, registry.get("secrets.local_cache.lookups").tag("result", "hit").counter().count());
+            } finally {
+                context.close();
+            }
+        } finally {
+            started.thenAccept(ConfigurableApplicationContext::close);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.OnePassLink.backend.util;
+
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Quota admission and flushing against a real Redis running the flush script (see
+ * {@link RealRedis}). Two instances sharing one Redis play two application nodes.
+ */
+class ApiKeyQuotasTest {
+
+    private static final String KEYS = "acme:acme-key-0123456789,other:other-key-0123456789";
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearKeyspace() {
+        RealRedis.flush(template);
+    }
+
+    @Test
+    void identifiesConfiguredKeysOnly() {
+        ApiKeyQuotas quotas = quotas(template, new SimpleMeterRegistry(), 100, 0.05);
+
+        assertEquals("acme", quotas.identify("acme-key-0123456789"));
+        assertEquals("other", quotas.identify(" other-key-0123456789 "));
+        assertNull(quotas.identify("acme-key-unknown"));
+        assertNull(quotas.identify(null));
+        assertThrows(IllegalArgumentException.class, () -> new ApiKeyQuotas(template, new SimpleMeterRegistry(),
+            true, "acme:short", 100, 1 << 20, 100, 0.05, 3600));
+    }
+
+    @Test
+    void nodeAdmitsOnlyItsOvershootBetweenFlushes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiKeyQuotas quotas = quotas(template, registry, 100, 0.05);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("acme", 10, expiresAt));
+        }
+        assertEquals(ApiKeyQuotas.Verdict.CREATES, quotas.tryAcquire("acme", 10, expiresAt));
+        assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("other", 10, expiresAt));
+
+        quotas.flush();
+        assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("acme", 10, expiresAt));
+        assertEquals(6, usage(registry, "acme", "creates_per_minute"));
+        assertEquals(1, registry.get("quota.rejected").tags("key", "acme", "resource", "creates").counter().count());
+    }
+
+    @Test
+    void flushSharesUsageBetweenNodes() {
+        ApiKeyQuotas nodeA = quotas(template, new SimpleMeterRegistry(), 10, 0.5);
+        ApiKeyQuotas nodeB = quotas(template, new SimpleMeterRegistry(), 10, 0.5);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ApiKeyQuotas.Verdict.OK, nodeA.tryAcquire("acme", 100, expiresAt));
+        }
+        nodeA.flush();
+        nodeB.flush();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ApiKeyQuotas.Verdict.OK, nodeB.tryAcquire("acme", 100, expiresAt));
+        }
+        nodeB.flush();
+        nodeA.flush();
+
+        assertEquals(ApiKeyQuotas.Verdict.CREATES, nodeA.tryAcquire("acme", 100, expiresAt));
+        assertEquals("10", field("acme", "live"));
+        assertEquals("1000", field("acme", "bytes"));
+    }
+
+    @Test
+    void byteAndLiveLimitsAreEnforced() {
+        ApiKeyQuotas quotas = new ApiKeyQuotas(template, new SimpleMeterRegistry(), true, KEYS,
+            1000, 1000, 3, 1.0, 3600);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+
+        assertEquals(ApiKeyQuotas.Verdict.BYTES, quotas.tryAcquire("acme", 1001, expiresAt));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("acme", 10, expiresAt));
+        }
+        assertEquals(ApiKeyQuotas.Verdict.LIVE, quotas.tryAcquire("acme", 10, expiresAt));
+
+        quotas.release("acme", 10, expiresAt);
+        assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("acme", 10, expiresAt));
+    }
+
+    @Test
+    void createLargerThanTheLocalAllowanceIsAdmittedAlone() {
+        // 5% of 1 MiB is 52,428 bytes; a 200,000 byte file is far larger
+        ApiKeyQuotas quotas = quotas(template, new SimpleMeterRegistry(), 100, 0.05);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+
+        assertEquals(ApiKeyQuotas.Verdict.OK, quotas.check("acme", 200_000));
+        assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("acme", 200_000, expiresAt));
+        // Nothing else fits next to it until it is settled
+        assertEquals(ApiKeyQuotas.Verdict.BYTES, quotas.tryAcquire("acme", 200_000, expiresAt));
+        assertEquals(ApiKeyQuotas.Verdict.BYTES, quotas.tryAcquire("acme", 10, expiresAt));
+
+        quotas.flush();
+        assertEquals("200000", field("acme", "bytes"));
+        assertEquals(ApiKeyQuotas.Verdict.OK, quotas.tryAcquire("acme", 200_000, expiresAt));
+        // Past the global headroom it is refused, both up front and at completion
+        assertEquals(ApiKeyQuotas.Verdict.BYTES, quotas.check("acme", 900_000));
+        quotas.flush();
+        assertEquals(ApiKeyQuotas.Verdict.BYTES, quotas.tryAcquire("acme", 700_000, expiresAt));
+    }
+
+    @Test
+    void concurrentAdmitsNeverOvershootTheLocalAllowance() throws Exception {
+        ApiKeyQuotas quotas = quotas(template, new SimpleMeterRegistry(), 1000, 1.0);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        if (quotas.tryAcquire("acme", 1, expiresAt) == ApiKeyQuotas.Verdict.OK) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : done) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1000, admitted.get());
+        quotas.flush();
+        assertEquals("1000", field("acme", "live"));
+    }
+
+    @Test
+    void consumedSecretsStopCountingBeforeTheirTtl() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiKeyQuotas quotas = quotas(template, registry, 100, 0.05);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+
+        quotas.tryAcquire("acme", 40, expiresAt);
+        quotas.tryAcquire("acme", 60, expiresAt);
+        quotas.flush();
+        quotas.consumed("acme", 40, expiresAt);
+        assertEquals(1, usage(registry, "acme", "live_secrets"));
+
+        quotas.flush();
+        assertEquals("1", field("acme", "live"));
+        assertEquals("60", field("acme", "bytes"));
+        // Creates per minute are not given back
+        assertEquals(2, usage(registry, "acme", "creates_per_minute"));
+    }
+
+    @Test
+    void expiredBucketsStopCounting() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiKeyQuotas quotas = quotas(template, registry, 100, 0.05);
+        Instant expiresAt = Instant.now().plusSeconds(30);
+        long bucket = expiresAt.toEpochMilli() / ApiKeyQuotas.BUCKET_MILLIS + 1;
+
+        quotas.tryAcquire("acme", 40, expiresAt);
+        quotas.flush();
+        assertEquals(1, usage(registry, "acme", "live_secrets"));
+
+        // Age the bucket as if its minute had passed
+        long now = System.currentTimeMillis() / ApiKeyQuotas.BUCKET_MILLIS;
+        rename("acme", "l:" + bucket, "l:" + (now - 1));
+        rename("acme", "b:" + bucket, "b:" + (now - 1));
+        template.opsForHash().put("quota:acme", "pruned", String.valueOf(now - 2));
+
+        quotas.flush();
+        assertEquals(0, usage(registry, "acme", "live_secrets"));
+        assertEquals(0, usage(registry, "acme", "stored_bytes"));
+    }
+
+    @Test
+    void failedFlushKeepsLocalUsage() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        LettuceConnectionFactory unreachable = RealRedis.connectionFactory("127.0.0.1", closedPort, 0, Duration.ofSeconds(2));
+        try {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            ApiKeyQuotas quotas = quotas(new RedisConfig().redisTemplate(unreachable), registry, 100, 0.05);
+            Instant expiresAt = Instant.now().plusSeconds(600);
+            for (int i = 0; i < 5; i++) {
+                quotas.tryAcquire("acme", 10, expiresAt);
+            }
+
+            quotas.flush();
+
+            assertEquals(5, usage(registry, "acme", "creates_per_minute"));
+            assertEquals(50, usage(registry, "acme", "stored_bytes"));
+            assertEquals(ApiKeyQuotas.Verdict.CREATES, quotas.tryAcquire("acme", 10, expiresAt));
+        } finally {
+            unreachable.destroy();
+        }
+    }
+
+    private static ApiKeyQuotas quotas(RedisTemplate<String, String> redisTemplate, SimpleMeterRegistry registry,
+                                       long createsPerMinute, double overshoot) {
+        return new ApiKeyQuotas(redisTemplate, registry, true, KEYS,
+            createsPerMinute, 1 << 20, 1000, overshoot, 3600);
+    }
+
+    private static double usage(SimpleMeterRegistry registry, String key, String resource) {
+        return registry.get("quota.usage").tags("key", key, "resource", resource).gauge().value();
+    }
+
+    private static String field(String name, String field) {
+        return (String) template.opsForHash().get("quota:" + name, field);
+    }
+
+    private static void rename(String name, String from, String to) {
+        Object value = template.opsForHash().get("quota:" + name, from);
+        template.opsForHash().delete("quota:" + name, from);
+        template.opsForHash().put("quota:" + name, to, value);
+    }
+}
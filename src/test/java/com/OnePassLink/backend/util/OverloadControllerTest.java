@@ -0,0 +1,188 @@
+package com.OnePassLink.backend.util;
+
+import com.OnePassLink.backend.util.OverloadController.RequestClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Admission order and CoDel shedding on a manual clock: queueing delays are whatever the test
+ * advances the clock by, so the assertions do not depend on scheduling or machine speed.
+ */
+class OverloadControllerTest {
+
+    private static final long TARGET_MS = 2;
+    private static final long INTERVAL_MS = 20;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry registry;
+    private OverloadController controller;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        controller = new OverloadController(registry, true, 1, 10, 100, TARGET_MS, INTERVAL_MS, 5000, clock::get);
+        clients = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void freedSlotGoesToTheQueuedConsumeFirst() throws Exception {
+        assertTrue(controller.acquire(RequestClass.CREATE));
+        Future<Boolean> create = enqueue(RequestClass.CREATE);
+        Future<Boolean> consume = enqueue(RequestClass.CONSUME);
+
+        advance(3);
+        controller.release();
+        assertTrue(consume.get(5, TimeUnit.SECONDS));
+        assertEquals(1, queued(RequestClass.CREATE));
+
+        advance(1);
+        controller.release();
+        assertTrue(create.get(5, TimeUnit.SECONDS));
+        assertEquals(3, delayMillis(RequestClass.CONSUME));
+        assertEquals(4, delayMillis(RequestClass.CREATE));
+    }
+
+    @Test
+    void standingCreateQueueShedsCreatesButNotConsumes() throws Exception {
+        assertTrue(controller.acquire(RequestClass.CREATE));
+        // Start a fresh interval so the immediate admission above does not count towards it
+        advance(INTERVAL_MS);
+        Future<Boolean> create = enqueue(RequestClass.CREATE);
+        advance(10);
+        controller.release();
+        assertTrue(create.get(5, TimeUnit.SECONDS));
+        controller.release();
+
+        // The interval closes with every create having waited 10ms against a 2ms target
+        advance(INTERVAL_MS);
+        assertFalse(controller.acquire(RequestClass.CREATE));
+        assertFalse(controller.acquire(RequestClass.DOCS));
+        assertEquals(2, controller.getShedLevel());
+        assertTrue(controller.acquire(RequestClass.CONSUME));
+        assertEquals(1, registry.get("overload.shed").tags("class", "create", "reason", "level").counter().count());
+    }
+
+    @Test
+    void shedLevelRelaxesOneClassPerQuietInterval() throws Exception {
+        assertTrue(controller.acquire(RequestClass.CHECK));
+        // Start a fresh interval so the immediate admission above does not count towards it
+        advance(INTERVAL_MS);
+        Future<Boolean> check = enqueue(RequestClass.CHECK);
+        advance(10);
+        controller.release();
+        assertTrue(check.get(5, TimeUnit.SECONDS));
+        controller.release();
+
+        advance(INTERVAL_MS);
+        assertFalse(controller.acquire(RequestClass.CHECK));
+        assertEquals(3, controller.getShedLevel());
+
+        advance(INTERVAL_MS);
+        assertTrue(controller.acquire(RequestClass.CONSUME));
+        controller.release();
+        assertEquals(2, controller.getShedLevel());
+        assertTrue(controller.acquire(RequestClass.CHECK));
+        controller.release();
+        assertFalse(controller.acquire(RequestClass.CREATE));
+    }
+
+    @Test
+    void waitersNeverTakeTheWorkersANewConsumeNeeds() throws Exception {
+        int workerThreads = 16;
+        int maxConcurrent = 2;
+        int maxQueued = OverloadController.maxQueued(workerThreads, maxConcurrent);
+        registry = new SimpleMeterRegistry();
+        controller = new OverloadController(registry, true, maxConcurrent, 256, maxQueued,
+            TARGET_MS, INTERVAL_MS, 5000, clock::get);
+        ExecutorService workers = Executors.newFixedThreadPool(workerThreads); // plays the servlet worker pool
+        try {
+            assertTrue(controller.acquire(RequestClass.CREATE));
+            assertTrue(controller.acquire(RequestClass.CREATE));
+            // A burst of creates, more than there are workers: only maxQueued of them may wait
+            List<Future<Boolean>> creates = new ArrayList<>();
+            for (int i = 0; i < 3 * workerThreads; i++) {
+                creates.add(workers.submit(() -> controller.acquire(RequestClass.CREATE)));
+            }
+            long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            // Wait for the burst to settle: every create not queued has been turned away
+            while (creates.stream().filter(Future::isDone).count() < creates.size() - maxQueued
+                    && System.nanoTime() < giveUp) {
+                Thread.sleep(1);
+            }
+            assertEquals(maxQueued, queued(RequestClass.CREATE));
+
+            // A worker is still free for the consume, which displaces the newest create
+            Future<Boolean> consume = workers.submit(() -> controller.acquire(RequestClass.CONSUME));
+            while (queued(RequestClass.CONSUME) == 0 && System.nanoTime() < giveUp) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, queued(RequestClass.CONSUME));
+            assertEquals(maxQueued - 1, queued(RequestClass.CREATE));
+            controller.release();
+            assertTrue(consume.get(5, TimeUnit.SECONDS));
+
+            int admittedCreates = 0;
+            for (int i = 0; i < maxQueued; i++) {
+                controller.release();
+            }
+            for (Future<Boolean> create : creates) {
+                admittedCreates += create.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(maxQueued - 1, admittedCreates);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Future<Boolean> enqueue(RequestClass requestClass) throws InterruptedException {
+        int before = queued(requestClass);
+        Future<Boolean> admitted = CompletableFuture.supplyAsync(() -> {
+            try {
+                return controller.acquire(requestClass);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }, clients);
+        long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(requestClass) == before && System.nanoTime() < giveUp) {
+            Thread.sleep(1);
+        }
+        assertEquals(before + 1, queued(requestClass));
+        return admitted;
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private int queued(RequestClass requestClass) {
+        return (int) registry.get("overload.queue.size").tag("class", requestClass.name().toLowerCase()).gauge().value();
+    }
+
+    private long delayMillis(RequestClass requestClass) {
+        return (long) registry.get("overload.queue.delay").tag("class", requestClass.name().toLowerCase())
+            .timer().max(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,73 @@
+package com.OnePassLink.backend.util;
+
+import com.OnePassLink.backend.model.PowChallenge;
+import com.OnePassLink.backend.util.ProofOfWork.Verdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProofOfWorkTest {
+
+    private final ProofOfWork proofOfWork = new ProofOfWork(null, new SimpleMeterRegistry(),
+        "on", "test-secret", 60, 8, 20, 20, 0.5, 6, 0, 300, 1000);
+
+    @Test
+    void acceptsSolutionOnceThenRejectsReplay() throws Exception {
+        PowChallenge challenge = proofOfWork.issueChallenge();
+        String solution = solve(challenge, true);
+
+        assertEquals(Verdict.OK, proofOfWork.verify(challenge.getChallenge(), solution));
+        assertEquals(Verdict.REPLAYED, proofOfWork.verify(challenge.getChallenge(), solution));
+    }
+
+    @Test
+    void fullReplayCacheAnswersBusyWithoutSpendingTheSolution() throws Exception {
+        ProofOfWork small = new ProofOfWork(null, new SimpleMeterRegistry(),
+            "on", "test-secret", 60, 8, 20, 20, 0.5, 6, 0, 300, 1);
+        PowChallenge first = small.issueChallenge();
+        PowChallenge second = small.issueChallenge();
+        String firstSolution = solve(first, true);
+
+        assertEquals(Verdict.OK, small.verify(first.getChallenge(), firstSolution));
+        assertEquals(Verdict.BUSY, small.verify(second.getChallenge(), solve(second, true)));
+        assertTrue(small.getRetryAfterSeconds() >= 1 && small.getRetryAfterSeconds() <= 60);
+        // Replays are still told apart from a full cache
+        assertEquals(Verdict.REPLAYED, small.verify(first.getChallenge(), firstSolution));
+    }
+
+    @Test
+    void rejectsMissingTamperedAndWeakSolutions() throws Exception {
+        PowChallenge challenge = proofOfWork.issueChallenge();
+        String token = challenge.getChallenge();
+        String tampered = (token.charAt(0) == 'A' ? 'B' : 'A') + token.substring(1);
+
+        assertEquals(Verdict.MISSING, proofOfWork.verify(token, null));
+        assertEquals(Verdict.INVALID, proofOfWork.verify(tampered, solve(challenge, true)));
+        assertEquals(Verdict.INSUFFICIENT, proofOfWork.verify(token, solve(challenge, false)));
+    }
+
+    @Test
+    void countsLeadingZeroBits() {
+        assertEquals(0, ProofOfWork.leadingZeroBits(new byte[] {(byte) 0x80, 0}));
+        assertEquals(11, ProofOfWork.leadingZeroBits(new byte[] {0, 0x10, 0}));
+        assertEquals(16, ProofOfWork.leadingZeroBits(new byte[] {0, 0}));
+    }
+
+    private static String solve(PowChallenge challenge, boolean valid) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        for (long counter = 0; ; counter++) {
+            String candidate = Long.toString(counter, 36);
+            byte[] hash = sha256.digest((challenge.getChallenge() + ":" + candidate).getBytes(StandardCharsets.UTF_8));
+            boolean solves = ProofOfWork.leadingZeroBits(hash) >= challenge.getDifficulty();
+            if (solves == valid) {
+                assertTrue(counter < 1_000_000);
+                return candidate;
+            }
+        }
+    }
+}
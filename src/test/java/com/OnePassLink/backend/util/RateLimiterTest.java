@@ -0,0 +1,77 @@
+package com.OnePassLink.backend.util;
+
+import com.OnePassLink.backend.config.RedisConfig;
+import com.OnePassLink.backend.integration.RealRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The rate limit script against a real Redis (see {@link RealRedis}).
+ */
+class RateLimiterTest {
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> template;
+    private static RateLimiter rateLimiter;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = RealRedis.connect(Duration.ofSeconds(2));
+        template = new RedisConfig().redisTemplate(connectionFactory);
+        rateLimiter = new RateLimiter(template, new DeadlineGuard(50, new SimpleMeterRegistry()));
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearKeyspace() {
+        RealRedis.flush(template);
+    }
+
+    @Test
+    void chargesCostAtomically() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> callers = Collections.nCopies(40,
+                () -> rateLimiter.isAllowed("10.0.0.1", 20, 60, 1));
+            int allowed = 0;
+            for (Future<Boolean> result : pool.invokeAll(callers)) {
+                allowed += result.get() ? 1 : 0;
+            }
+            assertEquals(20, allowed);
+            assertTrue(rateLimiter.getTTL("10.0.0.1") > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedCostIsNotCharged() {
+        assertTrue(rateLimiter.isAllowed("10.0.0.2", 10, 60, 8));
+        assertFalse(rateLimiter.isAllowed("10.0.0.2", 10, 60, 3));
+        assertEquals(8, rateLimiter.getCurrentCount("10.0.0.2"));
+        assertTrue(rateLimiter.isAllowed("10.0.0.2", 10, 60, 2));
+    }
+}